@@ -0,0 +1,38 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+// Read-only list view that writers can append to while readers iterate.
+// Appends are serialised; reads are lock-free and see a consistent prefix.
+public class AppendOnlyList<E> extends AbstractList<E> implements RandomAccess {
+    private volatile Object[] elements = new Object[16];
+    private volatile int size;
+
+    // returns the element's index
+    public synchronized int append(E element) {
+        Object[] data = elements;
+        int n = size;
+        if (n == data.length) {
+            data = Arrays.copyOf(data, n * 2);
+            elements = data;
+        }
+        data[n] = element;
+        size = n + 1; // publishes the element
+        return n;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        int n = size;
+        if (index < 0 || index >= n) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + n);
+        }
+        return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
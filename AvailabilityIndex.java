@@ -0,0 +1,97 @@
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Vehicles of one VehicleRegistry partitioned by status, and by status and type.
+// Vehicle.setStatus moves a vehicle between partitions, so counts are O(1) and
+// listing one status costs time in proportion to the vehicles in it, never the fleet.
+// Each partition is ordered by registration order, like the registry's list.
+public class AvailabilityIndex {
+
+    private static final Comparator<Vehicle> BY_ORDINAL = Comparator.comparingInt(Vehicle::getRegistryOrdinal);
+    private static final Vehicle.VehicleStatus[] STATUSES = Vehicle.VehicleStatus.values();
+    private static final VehicleType[] TYPES = VehicleType.values();
+
+    private static class Partition {
+        final NavigableSet<Vehicle> vehicles = new ConcurrentSkipListSet<>(BY_ORDINAL);
+        // ConcurrentSkipListSet.size() walks the set, so the count is kept separately
+        final AtomicInteger count = new AtomicInteger();
+
+        void add(Vehicle v) {
+            if (vehicles.add(v)) {
+                count.incrementAndGet();
+            }
+        }
+
+        void remove(Vehicle v) {
+            if (vehicles.remove(v)) {
+                count.decrementAndGet();
+            }
+        }
+    }
+
+    private final Partition[] byStatus = new Partition[STATUSES.length];
+    // [status][type]; the extra last column holds vehicles of no known VehicleType
+    private final Partition[][] byStatusAndType = new Partition[STATUSES.length][TYPES.length + 1];
+
+    public AvailabilityIndex() {
+        for (int s = 0; s < STATUSES.length; s++) {
+            byStatus[s] = new Partition();
+            for (int t = 0; t <= TYPES.length; t++) {
+                byStatusAndType[s][t] = new Partition();
+            }
+        }
+    }
+
+    // called by Vehicle with the vehicle's lock held
+    void add(Vehicle v, Vehicle.VehicleStatus status) {
+        byStatus[status.ordinal()].add(v);
+        byStatusAndType[status.ordinal()][typeSlot(v)].add(v);
+    }
+
+    void remove(Vehicle v, Vehicle.VehicleStatus status) {
+        byStatus[status.ordinal()].remove(v);
+        byStatusAndType[status.ordinal()][typeSlot(v)].remove(v);
+    }
+
+    void moved(Vehicle v, Vehicle.VehicleStatus from, Vehicle.VehicleStatus to) {
+        remove(v, from);
+        add(v, to);
+    }
+
+    public int count(Vehicle.VehicleStatus status) {
+        return byStatus[status.ordinal()].count.get();
+    }
+
+    public int count(Vehicle.VehicleStatus status, VehicleType type) {
+        return byStatusAndType[status.ordinal()][typeSlot(type)].count.get();
+    }
+
+    // live read-only view in registration order; iteration is weakly consistent
+    public NavigableSet<Vehicle> vehicles(Vehicle.VehicleStatus status) {
+        return Collections.unmodifiableNavigableSet(byStatus[status.ordinal()].vehicles);
+    }
+
+    public NavigableSet<Vehicle> vehicles(Vehicle.VehicleStatus status, VehicleType type) {
+        return Collections.unmodifiableNavigableSet(byStatusAndType[status.ordinal()][typeSlot(type)].vehicles);
+    }
+
+    // first vehicle of the type in the status, or null; e.g. "any available minibus?"
+    public Vehicle findFirst(Vehicle.VehicleStatus status, VehicleType type) {
+        NavigableSet<Vehicle> set = byStatusAndType[status.ordinal()][typeSlot(type)].vehicles;
+        for (Vehicle v : set) {
+            return v; // first() throws when a concurrent remove empties the set
+        }
+        return null;
+    }
+
+    private static int typeSlot(Vehicle v) {
+        return typeSlot(VehicleType.of(v));
+    }
+
+    private static int typeSlot(VehicleType type) {
+        return type == null ? TYPES.length : type.ordinal();
+    }
+}
@@ -0,0 +1,456 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+// Versioned binary alternative to vehicles.txt, customers.txt and records.txt.
+//
+// Every file starts with: int magic | byte kind | byte version | short reserved.
+// Strings (make, model, customer name, record type) live in a per-file dictionary
+// (int count, then short length + UTF-8 bytes each, at most 32767 bytes) and rows
+// refer to them by index, so rows are fixed width:
+//   vehicle  (40 bytes): type, status, flags, plate length, plate[8], year, make, model,
+//                        seats, horsepower, cargo size (double bits)
+//   customer ( 8 bytes): id, name
+//   record   (28 bytes): type, 2 reserved, customer id, epoch day, plate length, plate[8],
+//                        amount in cents
+// Amounts are rounded to whole cents. Files are written through one fixed buffer and
+// read through mappings of at most WINDOW bytes, so neither side is limited to 2 GB.
+public final class BinaryStore {
+
+    public static final int VERSION = 1;
+    private static final int MAGIC = 0x52454E54; // "RENT"
+    private static final byte KIND_VEHICLES = 'V';
+    private static final byte KIND_CUSTOMERS = 'C';
+    private static final byte KIND_RECORDS = 'R';
+
+    private static final int VEHICLE_BYTES = 40;
+    private static final int CUSTOMER_BYTES = 8;
+    private static final int RECORD_BYTES = 28;
+    private static final int PLATE_BYTES = 8;
+    private static final int HEADER_BYTES = 8;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int WINDOW = 1 << 30;
+
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final Vehicle.VehicleStatus[] STATUSES = Vehicle.VehicleStatus.values();
+
+    private static final int FLAG_ACCESSIBLE = 1;
+    private static final int FLAG_TRAILER = 2;
+    private static final int FLAG_TURBO = 4;
+
+    public static final String VEHICLE_FILE = "vehicles.bin";
+    public static final String CUSTOMER_FILE = "customers.bin";
+    public static final String RECORD_FILE = "records.bin";
+
+    private BinaryStore() {
+    }
+
+    public static void writeVehicles(Path file, List<Vehicle> vehicles) throws IOException {
+        int count = vehicles.size(); // fixed up front; the list may still be growing
+        Dictionary strings = new Dictionary();
+        int[] makes = new int[count];
+        int[] models = new int[count];
+        for (int i = 0; i < count; i++) {
+            makes[i] = strings.id(vehicles.get(i).getMake());
+            models[i] = strings.id(vehicles.get(i).getModel());
+        }
+        try (Output out = new Output(file)) {
+            putHeader(out, KIND_VEHICLES);
+            strings.write(out);
+            out.room(4).putInt(count);
+            for (int i = 0; i < count; i++) {
+                putVehicle(out.room(VEHICLE_BYTES), vehicles.get(i), makes[i], models[i]);
+            }
+        }
+    }
+
+    private static void putVehicle(ByteBuffer buf, Vehicle v, int make, int model) throws IOException {
+        VehicleType type = VehicleType.of(v);
+        if (type == null) {
+            throw new IOException("Unsupported vehicle type: " + v.getClass().getName());
+        }
+        int seats = 0;
+        int horsepower = 0;
+        int flags = 0;
+        double cargo = 0;
+        if (v instanceof Car) {
+            seats = ((Car) v).getNumSeats();
+        }
+        if (v instanceof SportCar) {
+            horsepower = ((SportCar) v).getHorsepower();
+            flags |= ((SportCar) v).hasTurbo() ? FLAG_TURBO : 0;
+        } else if (v instanceof Minibus) {
+            flags |= ((Minibus) v).isAccessible() ? FLAG_ACCESSIBLE : 0;
+        } else if (v instanceof PickupTruck) {
+            cargo = ((PickupTruck) v).getCargoSize();
+            flags |= ((PickupTruck) v).hasTrailer() ? FLAG_TRAILER : 0;
+        }
+        buf.put((byte) type.ordinal());
+        buf.put((byte) v.getStatus().ordinal());
+        buf.put((byte) flags);
+        putPlate(buf, v.getLicensePlate());
+        buf.putInt(v.getYear());
+        buf.putInt(make);
+        buf.putInt(model);
+        buf.putInt(seats);
+        buf.putInt(horsepower);
+        buf.putLong(Double.doubleToLongBits(cargo));
+    }
+
+    public static List<Vehicle> readVehicles(Path file) throws IOException {
+        try (Input in = open(file, KIND_VEHICLES)) {
+            String[] strings = Dictionary.read(in);
+            int count = in.need(4).getInt();
+            List<Vehicle> vehicles = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                vehicles.add(readVehicle(in.need(VEHICLE_BYTES), strings));
+            }
+            return vehicles;
+        }
+    }
+
+    private static Vehicle readVehicle(ByteBuffer buf, String[] strings) {
+        byte[] plate = new byte[PLATE_BYTES];
+        VehicleType type = TYPES[buf.get()];
+        Vehicle.VehicleStatus status = STATUSES[buf.get()];
+        int flags = buf.get();
+        int plateLength = buf.get();
+        buf.get(plate);
+        int year = buf.getInt();
+        String make = strings[buf.getInt()];
+        String model = strings[buf.getInt()];
+        int seats = buf.getInt();
+        int horsepower = buf.getInt();
+        double cargo = Double.longBitsToDouble(buf.getLong());
+
+        Vehicle v;
+        switch (type) {
+            case SPORT_CAR:
+                v = new SportCar(make, model, year, seats, horsepower, (flags & FLAG_TURBO) != 0);
+                break;
+            case CAR:
+                v = new Car(make, model, year, seats);
+                break;
+            case MINIBUS:
+                v = new Minibus(make, model, year, (flags & FLAG_ACCESSIBLE) != 0);
+                break;
+            default:
+                v = new PickupTruck(make, model, year, cargo, (flags & FLAG_TRAILER) != 0);
+                break;
+        }
+        v.setLicensePlate(new String(plate, 0, plateLength, StandardCharsets.US_ASCII));
+        v.setStatus(status);
+        return v;
+    }
+
+    public static void writeCustomers(Path file, List<Customer> customers) throws IOException {
+        int count = customers.size();
+        Dictionary strings = new Dictionary();
+        int[] names = new int[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = strings.id(customers.get(i).getCustomerName());
+        }
+        try (Output out = new Output(file)) {
+            putHeader(out, KIND_CUSTOMERS);
+            strings.write(out);
+            out.room(4).putInt(count);
+            for (int i = 0; i < count; i++) {
+                out.room(CUSTOMER_BYTES).putInt(customers.get(i).getCustomerId()).putInt(names[i]);
+            }
+        }
+    }
+
+    public static List<Customer> readCustomers(Path file) throws IOException {
+        try (Input in = open(file, KIND_CUSTOMERS)) {
+            String[] strings = Dictionary.read(in);
+            int count = in.need(4).getInt();
+            List<Customer> customers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ByteBuffer buf = in.need(CUSTOMER_BYTES);
+                int id = buf.getInt();
+                customers.add(new Customer(id, strings[buf.getInt()]));
+            }
+            return customers;
+        }
+    }
+
+    public static void writeRecords(Path file, List<RentalRecord> records) throws IOException {
+        int count = records.size();
+        Dictionary types = new Dictionary();
+        types.id("RENT");
+        types.id("RETURN");
+        int[] typeIds = new int[count];
+        for (int i = 0; i < count; i++) {
+            typeIds[i] = types.id(records.get(i).getRecordType());
+        }
+        if (types.size() > 256) {
+            throw new IOException("Too many distinct record types: " + types.size());
+        }
+        try (Output out = new Output(file)) {
+            putHeader(out, KIND_RECORDS);
+            types.write(out);
+            out.room(4).putInt(count);
+            for (int i = 0; i < count; i++) {
+                RentalRecord r = records.get(i);
+                ByteBuffer buf = out.room(RECORD_BYTES);
+                buf.put((byte) typeIds[i]);
+                buf.putShort((short) 0);
+                buf.putInt(r.getCustomer().getCustomerId());
+                buf.putInt((int) r.getRecordDate().toEpochDay());
+                putPlate(buf, r.getVehicle().getLicensePlate());
+                buf.putLong(Math.round(r.getTotalAmount() * 100));
+            }
+        }
+    }
+
+    // Like loadRecords: rows whose vehicle or customer is unknown are skipped.
+    public static void readRecords(Path file, LongFunction<Vehicle> vehicles,
+                                   IntFunction<Customer> customers, Consumer<RentalRecord> sink) throws IOException {
+        try (Input in = open(file, KIND_RECORDS)) {
+            String[] types = Dictionary.read(in);
+            int count = in.need(4).getInt();
+            for (int i = 0; i < count; i++) {
+                ByteBuffer buf = in.need(RECORD_BYTES);
+                String type = types[buf.get() & 0xFF];
+                buf.getShort();
+                int customerId = buf.getInt();
+                long epochDay = buf.getInt();
+                buf.get(); // plate length
+                long plate = LicensePlate.pack(buf, buf.position(), buf.position() + PLATE_BYTES);
+                buf.position(buf.position() + PLATE_BYTES);
+                long cents = buf.getLong();
+
+                Vehicle v = vehicles.apply(plate);
+                Customer c = customers.apply(customerId);
+                if (v == null || c == null) {
+                    continue;
+                }
+                sink.accept(new RentalRecord(v, c, LocalDate.ofEpochDay(epochDay), cents / 100.0, type));
+            }
+        }
+    }
+
+    // Converts vehicles.txt/customers.txt/records.txt in csvDir to .bin files in outDir.
+    public static void convertCsv(Path csvDir, Path outDir) throws IOException {
+        VehicleRegistry vehicles = new VehicleRegistry();
+        for (String line : readLines(csvDir.resolve("vehicles.txt"))) {
+            Vehicle v = CsvFormat.parseVehicle(line);
+            if (v != null) {
+                vehicles.add(v);
+            }
+        }
+        List<Customer> customers = new ArrayList<>();
+        Map<Integer, Customer> byId = new HashMap<>();
+        for (String line : readLines(csvDir.resolve("customers.txt"))) {
+            Customer c = CsvFormat.parseCustomer(line);
+            if (c != null && byId.putIfAbsent(c.getCustomerId(), c) == null) {
+                customers.add(c);
+            }
+        }
+        List<RentalRecord> records = new ArrayList<>();
+        Path recordFile = csvDir.resolve("records.txt");
+        if (Files.exists(recordFile)) {
+            new MappedRecordLoader(vehicles::find, byId::get)
+                    .load(recordFile, records::add);
+        }
+        Files.createDirectories(outDir);
+        writeVehicles(outDir.resolve(VEHICLE_FILE), vehicles.asList());
+        writeCustomers(outDir.resolve(CUSTOMER_FILE), customers);
+        writeRecords(outDir.resolve(RECORD_FILE), records);
+        System.out.println("Converted " + vehicles.size() + " vehicles, " + customers.size()
+                + " customers and " + records.size() + " records to " + outDir);
+    }
+
+    // java BinaryStore <csv dir> <output dir>
+    public static void main(String[] args) throws IOException {
+        Path in = Paths.get(args.length > 0 ? args[0] : ".");
+        Path out = Paths.get(args.length > 1 ? args[1] : ".");
+        convertCsv(in, out);
+    }
+
+    private static List<String> readLines(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        return Files.readAllLines(file);
+    }
+
+    private static void putHeader(Output out, byte kind) throws IOException {
+        ByteBuffer buf = out.room(HEADER_BYTES);
+        buf.putInt(MAGIC);
+        buf.put(kind);
+        buf.put((byte) VERSION);
+        buf.putShort((short) 0);
+    }
+
+    private static void putPlate(ByteBuffer buf, String plate) throws IOException {
+        byte[] bytes = plate.trim().getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > PLATE_BYTES) {
+            throw new IOException("Plate too long for binary format: " + plate);
+        }
+        buf.put((byte) bytes.length);
+        buf.put(bytes);
+        for (int i = bytes.length; i < PLATE_BYTES; i++) {
+            buf.put((byte) ' ');
+        }
+    }
+
+    private static Input open(Path file, byte kind) throws IOException {
+        Input in = new Input(file);
+        try {
+            ByteBuffer buf = in.need(HEADER_BYTES);
+            if (buf.getInt() != MAGIC || buf.get() != kind) {
+                throw new IOException("Not a " + (char) kind + " binary file: " + file);
+            }
+            int version = buf.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary format version " + version + " in " + file);
+            }
+            buf.getShort();
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // Writes through one fixed buffer, flushed to the channel whenever the next
+    // piece would not fit.
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+
+        Output(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        // the buffer, with at least n bytes free
+        ByteBuffer room(int n) throws IOException {
+            if (buf.remaining() < n) {
+                flush();
+            }
+            return buf;
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Maps the file a window at a time; a piece never straddles two windows because
+    // the next window starts wherever the current one ran short.
+    private static final class Input implements Closeable {
+        private final Path file;
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer buf;
+
+        Input(Path file) throws IOException {
+            this.file = file;
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            size = channel.size();
+            map(0);
+        }
+
+        // the buffer, positioned at the next unread byte with at least n bytes left
+        ByteBuffer need(int n) throws IOException {
+            if (buf.remaining() < n) {
+                long position = windowStart + buf.position();
+                if (size - position < n) {
+                    throw new IOException("Unexpected end of binary file: " + file);
+                }
+                map(position);
+            }
+            return buf;
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+
+        int id(String s) throws IOException {
+            String key = s == null ? "" : s;
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = encoded.size();
+                byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+                if (utf8.length > Short.MAX_VALUE) {
+                    throw new IOException("String longer than " + Short.MAX_VALUE
+                            + " bytes for binary format: " + key.substring(0, 32) + "...");
+                }
+                ids.put(key, id);
+                encoded.add(utf8);
+            }
+            return id;
+        }
+
+        int size() {
+            return encoded.size();
+        }
+
+        void write(Output out) throws IOException {
+            out.room(4).putInt(encoded.size());
+            for (byte[] utf8 : encoded) {
+                out.room(2 + utf8.length).putShort((short) utf8.length).put(utf8);
+            }
+        }
+
+        static String[] read(Input in) throws IOException {
+            String[] strings = new String[in.need(4).getInt()];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.need(2).getShort();
+                if (length < 0) {
+                    throw new IOException("Corrupt string length in binary file");
+                }
+                if (length > scratch.length) {
+                    scratch = new byte[length];
+                }
+                in.need(length).get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            return strings;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// RentalHistory kept column-wise in primitive arrays: vehicle ordinal, customer id,
+// epoch day, amount in cents and a record type code, about 21 bytes per record.
+// RentalRecord objects are only built when a query or the list view returns them,
+// and queries are straight scans over the columns they need.
+// Amounts are rounded to whole cents, as in BinaryStore.
+public class ColumnarRentalHistory extends RentalHistory {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] vehicleOrdinals = new int[INITIAL_CAPACITY];
+    private int[] customerIds = new int[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private long[] amountCents = new long[INITIAL_CAPACITY];
+    private byte[] typeCodes = new byte[INITIAL_CAPACITY];
+    private volatile int size;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // dictionaries behind the ordinal and code columns
+    private final List<Vehicle> vehicleTable = new ArrayList<>();
+    private final Map<LicensePlate, Integer> vehicleOrdinalByPlate = new HashMap<>();
+    private final Map<Integer, Customer> customersById = new HashMap<>();
+    private final Map<Integer, String> customerSearchKeys = new LinkedHashMap<>();
+    private final List<String> typeTable = new ArrayList<>(List.of("RENT", "RETURN"));
+
+    private final List<RentalRecord> view = new RecordView();
+
+    @Override
+    public void addRecord(RentalRecord record) {
+        lock.writeLock().lock();
+        try {
+            if (size == customerIds.length) {
+                grow();
+            }
+            int pos = size;
+            vehicleOrdinals[pos] = vehicleOrdinal(record.getVehicle());
+            customerIds[pos] = customerId(record.getCustomer());
+            epochDays[pos] = (int) record.getRecordDate().toEpochDay();
+            amountCents[pos] = Math.round(record.getTotalAmount() * 100);
+            typeCodes[pos] = typeCode(record.getRecordType());
+            size = pos + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        getAnalytics().add(record);
+    }
+
+    private void grow() {
+        int capacity = customerIds.length * 2;
+        vehicleOrdinals = Arrays.copyOf(vehicleOrdinals, capacity);
+        customerIds = Arrays.copyOf(customerIds, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+    }
+
+    private int vehicleOrdinal(Vehicle vehicle) {
+        LicensePlate plate = vehicle.getPlate();
+        Integer ordinal = vehicleOrdinalByPlate.get(plate);
+        if (ordinal == null) {
+            ordinal = vehicleTable.size();
+            vehicleTable.add(vehicle);
+            vehicleOrdinalByPlate.put(plate, ordinal);
+        }
+        return ordinal;
+    }
+
+    private int customerId(Customer customer) {
+        int id = customer.getCustomerId();
+        if (!customersById.containsKey(id)) {
+            customersById.put(id, customer);
+            customerSearchKeys.put(id, customer.toString().toLowerCase(Locale.ROOT));
+        }
+        return id;
+    }
+
+    private byte typeCode(String type) {
+        int code = typeTable.indexOf(type);
+        if (code < 0) {
+            if (typeTable.size() > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many record types: " + type);
+            }
+            code = typeTable.size();
+            typeTable.add(type);
+        }
+        return (byte) code;
+    }
+
+    // caller holds the read lock
+    private RentalRecord materialize(int pos) {
+        return new RentalRecord(vehicleTable.get(vehicleOrdinals[pos]),
+                customersById.get(customerIds[pos]),
+                LocalDate.ofEpochDay(epochDays[pos]),
+                amountCents[pos] / 100.0,
+                typeTable.get(typeCodes[pos]));
+    }
+
+    // read-only view; each get builds a fresh RentalRecord
+    @Override
+    public List<RentalRecord> getRentalHistory() {
+        return view;
+    }
+
+    public int getRecordCount() {
+        return size;
+    }
+
+    @Override
+    public List<RentalRecord> getRentalRecordsByCustomer(String customerName) {
+        String query = customerName.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            List<Integer> matches = new ArrayList<>();
+            for (Map.Entry<Integer, String> entry : customerSearchKeys.entrySet()) {
+                if (entry.getValue().contains(query)) {
+                    matches.add(entry.getKey());
+                }
+            }
+            return collectCustomers(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<RentalRecord> getRentalRecordsByCustomerId(int customerId) {
+        lock.readLock().lock();
+        try {
+            List<RentalRecord> result = new ArrayList<>();
+            int[] ids = customerIds;
+            for (int i = 0, n = size; i < n; i++) {
+                if (ids[i] == customerId) {
+                    result.add(materialize(i));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<RentalRecord> getRentalRecordsByCustomerNameToken(String token) {
+        String key = token.trim().toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            List<Integer> matches = new ArrayList<>();
+            for (Customer customer : customersById.values()) {
+                if (hasNameToken(customer.getCustomerName(), key)) {
+                    matches.add(customer.getCustomerId());
+                }
+            }
+            return collectCustomers(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean hasNameToken(String name, String key) {
+        if (name == null || key.isEmpty()) {
+            return false;
+        }
+        for (String part : name.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (part.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // records of any of the given customers, in insertion order; caller holds the read lock
+    private List<RentalRecord> collectCustomers(List<Integer> ids) {
+        List<RentalRecord> result = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+        int[] wanted = new int[ids.size()];
+        for (int i = 0; i < wanted.length; i++) {
+            wanted[i] = ids.get(i);
+        }
+        Arrays.sort(wanted);
+        int[] column = customerIds;
+        for (int i = 0, n = size; i < n; i++) {
+            if (Arrays.binarySearch(wanted, column[i]) >= 0) {
+                result.add(materialize(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<RentalRecord> getRentalRecordsByVehicle(String licensePlate) {
+        long packed = LicensePlate.pack(licensePlate);
+        List<RentalRecord> result = new ArrayList<>();
+        if (packed == LicensePlate.INVALID) {
+            return result;
+        }
+        LicensePlate plate = LicensePlate.fromPacked(packed);
+        lock.readLock().lock();
+        try {
+            Integer ordinal = vehicleOrdinalByPlate.get(plate);
+            if (ordinal == null) {
+                return result;
+            }
+            int target = ordinal;
+            int[] column = vehicleOrdinals;
+            for (int i = 0, n = size; i < n; i++) {
+                if (column[i] == target) {
+                    result.add(materialize(i));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<RentalRecord> getRentalRecordsOn(LocalDate date) {
+        return getRentalRecordsBetween(date, date);
+    }
+
+    // inclusive on both ends, ordered by date then insertion order
+    @Override
+    public List<RentalRecord> getRentalRecordsBetween(LocalDate from, LocalDate to) {
+        List<RentalRecord> result = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+        lock.readLock().lock();
+        try {
+            for (long key : keysBetween(from.toEpochDay(), to.toEpochDay())) {
+                result.add(materialize((int) key));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // only the sorted positions are held; each record is built as the stream reaches it
+    @Override
+    public Stream<RentalRecord> streamBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return Stream.empty();
+        }
+        long[] keys;
+        lock.readLock().lock();
+        try {
+            keys = keysBetween(from.toEpochDay(), to.toEpochDay());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Arrays.stream(keys).mapToObj(key -> view.get((int) key));
+    }
+
+    // (day, position) pairs packed into longs and sorted, so ties keep insertion
+    // order; the position is the low half. Caller holds the read lock.
+    private long[] keysBetween(long fromDay, long toDay) {
+        int[] days = epochDays;
+        int n = size;
+        int matches = 0;
+        for (int i = 0; i < n; i++) {
+            if (days[i] >= fromDay && days[i] <= toDay) {
+                matches++;
+            }
+        }
+        long[] keys = new long[matches];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (days[i] >= fromDay && days[i] <= toDay) {
+                keys[k++] = ((long) days[i] << 32) | i;
+            }
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    @Override
+    public long seek(LocalDate date) {
+        long day = date.toEpochDay();
+        lock.readLock().lock();
+        try {
+            int[] days = epochDays;
+            int n = size;
+            for (int i = 0; i < n; i++) {
+                if (days[i] >= day) {
+                    return i;
+                }
+            }
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public LocalDate getFirstRecordDate() {
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return null;
+            }
+            int min = Integer.MAX_VALUE;
+            int[] days = epochDays;
+            for (int i = 0, n = size; i < n; i++) {
+                min = Math.min(min, days[i]);
+            }
+            return LocalDate.ofEpochDay(min);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public LocalDate getLastRecordDate() {
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return null;
+            }
+            int max = Integer.MIN_VALUE;
+            int[] days = epochDays;
+            for (int i = 0, n = size; i < n; i++) {
+                max = Math.max(max, days[i]);
+            }
+            return LocalDate.ofEpochDay(max);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // sum of amounts for records in [from, to] without building any RentalRecord
+    public double getTotalAmountBetween(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        long cents = 0;
+        lock.readLock().lock();
+        try {
+            int[] days = epochDays;
+            long[] amounts = amountCents;
+            for (int i = 0, n = size; i < n; i++) {
+                if (days[i] >= fromDay && days[i] <= toDay) {
+                    cents += amounts[i];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return cents / 100.0;
+    }
+
+    private class RecordView extends AbstractList<RentalRecord> implements RandomAccess {
+        @Override
+        public RentalRecord get(int index) {
+            lock.readLock().lock();
+            try {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return materialize(index);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+import java.time.LocalDate;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// Line formats of vehicles.txt, customers.txt, records.txt and reservations.txt,
+// shared by the savers, the loaders and the snapshot store.
+public final class CsvFormat {
+
+    private CsvFormat() {
+    }
+
+    public static String formatVehicle(Vehicle vehicle) {
+        return formatVehicle(vehicle, vehicle.getStatus());
+    }
+
+    // the line as it was when the vehicle had the given status
+    public static String formatVehicle(Vehicle vehicle, Vehicle.VehicleStatus status) {
+        String type;
+        String extra;
+
+        if (vehicle instanceof SportCar) {
+            type = VehicleType.SPORT_CAR.getCode();
+            extra = ((SportCar) vehicle).getNumSeats() + ";" +
+                    ((SportCar) vehicle).getHorsepower() + ";" +
+                    ((SportCar) vehicle).hasTurbo();
+        } else if (vehicle instanceof Car) {
+            type = VehicleType.CAR.getCode();
+            extra = String.valueOf(((Car) vehicle).getNumSeats());
+        } else if (vehicle instanceof Minibus) {
+            type = VehicleType.MINIBUS.getCode();
+            extra = String.valueOf(((Minibus) vehicle).isAccessible());
+        } else if (vehicle instanceof PickupTruck) {
+            type = VehicleType.PICKUP.getCode();
+            extra = ((PickupTruck) vehicle).getCargoSize() + ";" +
+                    ((PickupTruck) vehicle).hasTrailer();
+        } else {
+            type = "UNKNOWN";
+            extra = "";
+        }
+
+        return type + "," +
+                vehicle.getLicensePlate() + "," +
+                vehicle.getMake() + "," +
+                vehicle.getModel() + "," +
+                vehicle.getYear() + "," +
+                extra + "," +
+                status;
+    }
+
+    // returns null for lines to skip; throws NumberFormatException on bad numbers
+    public static Vehicle parseVehicle(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 7) {
+            return null; // skip malformed lines
+        }
+
+        String type = parts[0];
+        String plate = parts[1];
+        String make = parts[2];
+        String model = parts[3];
+        int year = Integer.parseInt(parts[4]);
+        String extra = parts[5];
+        String statusStr = parts[6];
+
+        Vehicle v = null;
+        if ("CAR".equals(type)) {
+            int seats = Integer.parseInt(extra);
+            v = new Car(make, model, year, seats);
+        } else if ("SPORTCAR".equals(type)) {
+            String[] ex = extra.split(";");
+            v = new SportCar(make, model, year, Integer.parseInt(ex[0]),
+                    Integer.parseInt(ex[1]), Boolean.parseBoolean(ex[2]));
+        } else if ("MINIBUS".equals(type)) {
+            // older files hold Minibus.getInfo() here rather than the flag
+            boolean accessible = Boolean.parseBoolean(extra) || extra.endsWith("Accessible: Yes");
+            v = new Minibus(make, model, year, accessible);
+        } else if ("PICKUP".equals(type)) {
+            String[] ex = extra.split(";");
+            double cargo = Double.parseDouble(ex[0]);
+            boolean hasTrailer = Boolean.parseBoolean(ex[1]);
+            v = new PickupTruck(make, model, year, cargo, hasTrailer);
+        }
+
+        if (v != null) {
+            v.setLicensePlate(plate);
+            v.setStatus(parseStatus(statusStr));
+        }
+        return v;
+    }
+
+    // unknown values fall back to Available, as the loader always did
+    public static Vehicle.VehicleStatus parseStatus(String s) {
+        for (Vehicle.VehicleStatus status : Vehicle.VehicleStatus.values()) {
+            if (status.name().equalsIgnoreCase(s.trim())) {
+                return status;
+            }
+        }
+        return Vehicle.VehicleStatus.Available;
+    }
+
+    public static String formatCustomer(Customer customer) {
+        return customer.getCustomerId() + "," + customer.getCustomerName();
+    }
+
+    public static Customer parseCustomer(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 2) {
+            return null;
+        }
+
+        int id = Integer.parseInt(parts[0]);
+        // the name is the rest of the line, so a comma in it survives a reload
+        String name = line.substring(line.indexOf(',') + 1);
+        return new Customer(id, name);
+    }
+
+    // null for lines to skip, including ones naming an unknown vehicle or customer;
+    // throws NumberFormatException / DateTimeParseException on bad values
+    public static RentalRecord parseRecord(String line, Function<String, Vehicle> vehicles,
+                                           IntFunction<Customer> customers) {
+        String[] parts = line.split(",");
+        if (parts.length < 5) {
+            return null;
+        }
+
+        String type = parts[0];
+        String plate = parts[1];
+        int customerId = Integer.parseInt(parts[2]);
+        LocalDate date = LocalDate.parse(parts[3]);
+        double amount = Double.parseDouble(parts[4]);
+
+        Vehicle v = vehicles.apply(plate);
+        Customer c = customers.apply(customerId);
+        if (v == null || c == null) {
+            return null;
+        }
+        return new RentalRecord(v, c, date, amount, type);
+    }
+
+    public static String formatRecord(RentalRecord record) {
+        return record.getRecordType() + "," +
+                record.getVehicle().getLicensePlate() + "," +
+                record.getCustomer().getCustomerId() + "," +
+                record.getRecordDate().toString() + "," +
+                record.getTotalAmount();
+    }
+
+    // as above, followed by the journal entry the record was made from; the loaders
+    // ignore the extra field, the journal replay uses it to find missing lines
+    public static String formatRecord(RentalRecord record, long journalSequence) {
+        return formatRecord(record) + "," + journalSequence;
+    }
+
+    // the journal sequence after a record's five fields, or 0 if the line has none
+    public static long parseRecordSequence(String line) {
+        int comma = -1;
+        for (int i = 0; i < 5; i++) {
+            comma = line.indexOf(',', comma + 1);
+            if (comma < 0) {
+                return 0;
+            }
+        }
+        try {
+            return Long.parseLong(line.substring(comma + 1).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static String formatReservation(Reservation reservation) {
+        return "RESERVE," + reservation.getId() + "," +
+                reservation.getVehicle().getLicensePlate() + "," +
+                reservation.getCustomer().getCustomerId() + "," +
+                reservation.getStart() + "," +
+                reservation.getEnd();
+    }
+
+    public static String formatCancellation(Reservation reservation) {
+        return "CANCEL," + reservation.getId();
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+public class CustomerRegistry {
+    // open-addressing table keyed by the primitive customer ID (no Integer boxing)
+    private int[] keys = new int[16];
+    private Customer[] values = new Customer[16];
+    private int count;
+    private final AppendOnlyList<Customer> customers = new AppendOnlyList<>();
+    // lookups are optimistic and only fall back to a read lock if an add raced with them
+    private final StampedLock lock = new StampedLock();
+
+    public boolean add(Customer customer) {
+        int id = customer.getCustomerId();
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotFor(keys, values, id);
+            if (values[slot] != null) {
+                return false;
+            }
+            keys[slot] = id;
+            values[slot] = customer;
+            count++;
+            customers.append(customer);
+            if (count * 2 > keys.length) {
+                resize();
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Customer find(int id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int[] k = keys;
+            Customer[] v = values;
+            // k and v may be from different tables mid-resize; validate() catches that
+            if (k.length == v.length) {
+                Customer found = v[slotFor(k, v, id)];
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return values[slotFor(keys, values, id)];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(int id) {
+        return find(id) != null;
+    }
+
+    public int size() {
+        return customers.size();
+    }
+
+    public List<Customer> asList() {
+        return Collections.unmodifiableList(customers);
+    }
+
+    // returns the slot holding id, or the empty slot where it would go
+    private static int slotFor(int[] keys, Customer[] values, int id) {
+        int mask = keys.length - 1;
+        int i = mix(id) & mask;
+        while (values[i] != null && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Customer[] oldValues = values;
+        int[] newKeys = new int[oldKeys.length * 2];
+        Customer[] newValues = new Customer[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotFor(newKeys, newValues, oldKeys[i]);
+                newKeys[slot] = oldKeys[i];
+                newValues[slot] = oldValues[i];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
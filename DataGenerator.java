@@ -0,0 +1,382 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Writes synthetic vehicles.txt, customers.txt and records.txt for load tests.
+//
+//   java DataGenerator [--dir .] [--vehicles 10000] [--customers 50000] [--records 1000000]
+//                      [--seed 42] [--threads <cpus>] [--vehicle-skew 0] [--customer-skew 0]
+//                      [--start 2020-01-01] [--days 1460]
+//
+// Vehicles are split across the threads (vehicle i belongs to thread i % threads),
+// and each thread streams the records of its own vehicles to a part file; the parts
+// are then concatenated into records.txt. Per vehicle the records alternate RENT and
+// RETURN with non-decreasing dates, a RETURN names the customer of the RENT before it,
+// and vehicles.txt is written last so a vehicle whose last record is a RENT is Rented.
+// Only per-vehicle state is kept in memory, never the records.
+//
+// A skew above 0 picks vehicles and customers from a Zipf distribution with that
+// exponent (about 1 gives a strongly hot head), so low indexes are the hot ones.
+// The same seed and thread count always produce the same files.
+public class DataGenerator {
+
+    private static final String[] CAR_MAKES = {"Toyota", "Honda", "Ford", "Mazda", "Hyundai", "Kia", "Nissan"};
+    private static final String[] CAR_MODELS = {"Corolla", "Civic", "Focus", "Mazda3", "Elantra", "Rio", "Sentra"};
+    private static final String[] SPORT_MAKES = {"Porsche", "Ferrari", "Chevrolet", "Nissan", "Audi"};
+    private static final String[] SPORT_MODELS = {"911", "Roma", "Corvette", "Gtr", "R8"};
+    private static final String[] BUS_MAKES = {"Ford", "Mercedes", "Volkswagen", "Toyota"};
+    private static final String[] BUS_MODELS = {"Transit", "Sprinter", "Crafter", "Hiace"};
+    private static final String[] PICKUP_MAKES = {"Ford", "Ram", "Chevrolet", "Toyota", "Gmc"};
+    private static final String[] PICKUP_MODELS = {"F150", "1500", "Silverado", "Tacoma", "Sierra"};
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Wei", "Aisha", "Carlos", "Olga",
+        "Ravi", "Sofia", "Kenji", "Fatima", "Liam", "Noor", "Mateo", "Ingrid", "Kwame", "Yuki"};
+    private static final String[] LAST_NAMES = {"Smith", "Garcia", "Chen", "Khan", "Silva", "Ivanova",
+        "Patel", "Rossi", "Tanaka", "Haddad", "Murphy", "Ali", "Lopez", "Berg", "Mensah", "Sato"};
+
+    // daily rate in cents by vehicle kind: car, sport car, minibus, pickup
+    private static final long[] DAILY_RATE_CENTS = {4500, 15000, 9000, 7000};
+
+    private final long seed;
+    private final int threads;
+    private double vehicleSkew;
+    private double customerSkew;
+    private LocalDate start = LocalDate.of(2020, 1, 1);
+    private int days = 1460;
+
+    public DataGenerator(long seed, int threads) {
+        this.seed = seed;
+        this.threads = Math.max(1, threads);
+    }
+
+    // Zipf exponents for picking vehicles and customers; 0 is uniform
+    public void setSkew(double vehicleSkew, double customerSkew) {
+        this.vehicleSkew = vehicleSkew;
+        this.customerSkew = customerSkew;
+    }
+
+    // records are spread over about this many days from start
+    public void setDates(LocalDate start, int days) {
+        this.start = start;
+        this.days = Math.max(1, days);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get(".");
+        int vehicles = 10_000;
+        int customers = 50_000;
+        long records = 1_000_000;
+        long seed = 42;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double vehicleSkew = 0;
+        double customerSkew = 0;
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        int days = 1460;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir":
+                    dir = Paths.get(args[++i]);
+                    break;
+                case "--vehicles":
+                    vehicles = Integer.parseInt(args[++i].replace("_", ""));
+                    break;
+                case "--customers":
+                    customers = Integer.parseInt(args[++i].replace("_", ""));
+                    break;
+                case "--records":
+                    records = Long.parseLong(args[++i].replace("_", ""));
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--vehicle-skew":
+                    vehicleSkew = Double.parseDouble(args[++i]);
+                    break;
+                case "--customer-skew":
+                    customerSkew = Double.parseDouble(args[++i]);
+                    break;
+                case "--start":
+                    start = LocalDate.parse(args[++i]);
+                    break;
+                case "--days":
+                    days = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+        }
+
+        DataGenerator generator = new DataGenerator(seed, threads);
+        generator.setSkew(vehicleSkew, customerSkew);
+        generator.setDates(start, days);
+        long began = System.nanoTime();
+        generator.generate(dir, vehicles, customers, records);
+        double seconds = (System.nanoTime() - began) / 1e9;
+        long bytes = Files.size(dir.resolve("vehicles.txt")) + Files.size(dir.resolve("customers.txt"))
+                + Files.size(dir.resolve("records.txt"));
+        System.out.printf("Wrote %d vehicles, %d customers and %d records to %s in %.1f s (%.0f MB/s)%n",
+                vehicles, customers, records, dir, seconds, bytes / 1e6 / seconds);
+    }
+
+    public void generate(Path dir, int vehicleCount, int customerCount, long recordCount) throws IOException {
+        if (vehicleCount < 1 || customerCount < 1) {
+            throw new IllegalArgumentException("Need at least one vehicle and one customer");
+        }
+        Files.createDirectories(dir);
+        int parts = Math.min(threads, vehicleCount);
+        ExecutorService pool = Executors.newFixedThreadPool(parts + 1);
+        try {
+            double[] customerCdf = cdf(customerCount, customerSkew);
+            Future<?> customerFile = pool.submit(() -> {
+                writeCustomers(dir.resolve("customers.txt"), customerCount);
+                return null;
+            });
+
+            // one split per part, taken in order, so output only depends on seed and threads
+            SplittableRandom root = new SplittableRandom(seed);
+            List<Future<Part>> futures = new ArrayList<>();
+            for (int p = 0; p < parts; p++) {
+                Part part = new Part(p, parts, vehicleCount, root.split(),
+                        dir.resolve("records.txt.part" + p));
+                long quota = recordCount / parts + (p < recordCount % parts ? 1 : 0);
+                futures.add(pool.submit(() -> part.run(quota, customerCdf, customerCount)));
+            }
+
+            boolean[] rented = new boolean[vehicleCount];
+            List<Path> partFiles = new ArrayList<>();
+            for (Future<Part> future : futures) {
+                Part part = future.get();
+                for (int j = 0; j < part.rented.length; j++) {
+                    rented[part.index + j * parts] = part.rented[j];
+                }
+                partFiles.add(part.file);
+            }
+            concatenate(partFiles, dir.resolve("records.txt"));
+            writeVehicles(dir.resolve("vehicles.txt"), vehicleCount, rented);
+            customerFile.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating data", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // The records of vehicles index, index + parts, index + 2 * parts, ...
+    private class Part {
+        final int index;
+        final int parts;
+        final SplittableRandom random;
+        final Path file;
+        final boolean[] rented;
+        final int[] lastDay;
+        final int[] renter;
+        final double[] vehicleCdf;
+        final String[] dayText = new String[days + 1];
+
+        Part(int index, int parts, int vehicleCount, SplittableRandom random, Path file) {
+            this.index = index;
+            this.parts = parts;
+            this.random = random;
+            this.file = file;
+            int local = (vehicleCount - index + parts - 1) / parts;
+            rented = new boolean[local];
+            lastDay = new int[local];
+            renter = new int[local];
+            vehicleCdf = cdf(local, vehicleSkew);
+        }
+
+        Part run(long quota, double[] customerCdf, int customerCount) throws IOException {
+            int local = rented.length;
+            // average days between a vehicle's records, from its expected share of the quota
+            double[] step = new double[local];
+            for (int j = 0; j < local; j++) {
+                double share = vehicleCdf == null ? 1.0 / local : vehicleCdf[j] - (j == 0 ? 0 : vehicleCdf[j - 1]);
+                double expected = Math.max(1, quota * share);
+                step[j] = Math.min(30, days / expected);
+                lastDay[j] = random.nextInt(Math.max(1, (int) Math.min(days, 2 * step[j]) + 1));
+            }
+
+            StringBuilder line = new StringBuilder(64);
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (long n = 0; n < quota; n++) {
+                    int j = pick(random, vehicleCdf, local);
+                    int vehicle = index + j * parts;
+                    int advance = (int) (random.nextDouble() * 2 * step[j] + 0.5);
+                    lastDay[j] += advance;
+                    long cents;
+                    line.setLength(0);
+                    if (!rented[j]) {
+                        renter[j] = pick(random, customerCdf, customerCount) + 1;
+                        cents = DAILY_RATE_CENTS[kind(vehicle)] * (1 + random.nextInt(7));
+                        line.append("RENT,");
+                    } else {
+                        cents = random.nextInt(5) == 0 ? random.nextInt(10_000) : 0;
+                        line.append("RETURN,");
+                    }
+                    rented[j] = !rented[j];
+                    line.append(plate(vehicle)).append(',')
+                            .append(renter[j]).append(',')
+                            .append(day(lastDay[j])).append(',')
+                            .append(cents / 100.0); // same text as CsvFormat.formatRecord
+                    out.append(line).append('\n');
+                }
+            }
+            return this;
+        }
+
+        private String day(int offset) {
+            if (offset < dayText.length) {
+                String text = dayText[offset];
+                if (text == null) {
+                    text = start.plusDays(offset).toString();
+                    dayText[offset] = text;
+                }
+                return text;
+            }
+            return start.plusDays(offset).toString();
+        }
+    }
+
+    // Cumulative Zipf weights over ranks 0..n-1, or null for uniform.
+    private static double[] cdf(int n, double skew) {
+        if (skew <= 0) {
+            return null;
+        }
+        double[] cdf = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += Math.pow(i + 1, -skew);
+            cdf[i] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= total;
+        }
+        return cdf;
+    }
+
+    // a rank from cdf, or uniform over [0, n) when there is none
+    private static int pick(SplittableRandom random, double[] cdf, int n) {
+        if (cdf == null) {
+            return random.nextInt(n);
+        }
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(i < 0 ? -i - 1 : i, cdf.length - 1);
+    }
+
+    // 0 car, 1 sport car, 2 minibus, 3 pickup; fixed per vehicle index and seed
+    private int kind(int vehicle) {
+        int bucket = (int) Long.remainderUnsigned(mix(seed + vehicle), 100);
+        if (bucket < 55) {
+            return 0;
+        }
+        if (bucket < 65) {
+            return 1;
+        }
+        return bucket < 80 ? 2 : 3;
+    }
+
+    // "V" plus the index in base 36, zero-padded to 7 characters: valid for Vehicle.isValidPlate
+    static String plate(int vehicle) {
+        char[] text = {'V', '0', '0', '0', '0', '0', '0', '0'};
+        int value = vehicle;
+        for (int i = text.length - 1; i > 0 && value > 0; i--) {
+            text[i] = Character.toUpperCase(Character.forDigit(value % 36, 36));
+            value /= 36;
+        }
+        return new String(text);
+    }
+
+    private void writeVehicles(Path file, int count, boolean[] rented) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                long h = mix(seed ^ ((long) i << 20));
+                int a = (int) ((h >>> 8) & 0xffff);
+                int b = (int) ((h >>> 24) & 0xffff);
+                int year = 2010 + (int) ((h >>> 40) & 0xf);
+                Vehicle v;
+                switch (kind(i)) {
+                    case 0:
+                        v = new Car(CAR_MAKES[a % CAR_MAKES.length], CAR_MODELS[b % CAR_MODELS.length], year,
+                                4 + a % 4);
+                        break;
+                    case 1:
+                        v = new SportCar(SPORT_MAKES[a % SPORT_MAKES.length], SPORT_MODELS[b % SPORT_MODELS.length],
+                                year, 2, 300 + b % 400, a % 2 == 0);
+                        break;
+                    case 2:
+                        v = new Minibus(BUS_MAKES[a % BUS_MAKES.length], BUS_MODELS[b % BUS_MODELS.length], year,
+                                a % 3 == 0);
+                        break;
+                    default:
+                        v = new PickupTruck(PICKUP_MAKES[a % PICKUP_MAKES.length],
+                                PICKUP_MODELS[b % PICKUP_MODELS.length], year, 4 + a % 5, b % 2 == 0);
+                        break;
+                }
+                v.setLicensePlate(plate(i));
+                v.setStatus(rented[i] ? Vehicle.VehicleStatus.Rented : Vehicle.VehicleStatus.Available);
+                out.write(CsvFormat.formatVehicle(v));
+                out.newLine();
+            }
+        }
+    }
+
+    private void writeCustomers(Path file, int count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                long h = mix(~seed + i);
+                String name = FIRST_NAMES[(int) ((h >>> 8) & 0xff) % FIRST_NAMES.length] + " "
+                        + LAST_NAMES[(int) ((h >>> 24) & 0xff) % LAST_NAMES.length];
+                out.write(CsvFormat.formatCustomer(new Customer(i + 1, name)));
+                out.newLine();
+            }
+        }
+    }
+
+    private static void concatenate(List<Path> parts, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                Files.delete(part);
+            }
+        }
+    }
+
+    // 64-bit finalizer from MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
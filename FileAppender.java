@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Long-lived, buffered line appender for the flat files. The channel is opened
+// on first use and kept open; when lines reach the file, and when they are forced
+// to the disk, depends on the Durability mode.
+public class FileAppender {
+
+    public enum Durability {
+        EVERY_WRITE,   // write and fsync each line immediately
+        GROUP_COMMIT,  // write and fsync every N ms or every N lines, whichever comes first
+        ON_SHUTDOWN;   // write only when the buffer fills or on flush(); fsync on close()
+
+        public static Durability parse(String s) {
+            if (s == null) {
+                return EVERY_WRITE;
+            }
+            return valueOf(s.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String NEWLINE = System.lineSeparator();
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "file-appender-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String path;
+    private final Durability durability;
+    private final int groupCommitLines;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private FileChannel channel;
+    private int pendingLines;
+    private ScheduledFuture<?> flushTask;
+
+    public FileAppender(String path, Durability durability, long groupCommitMillis, int groupCommitLines) {
+        this.path = path;
+        this.durability = durability;
+        this.groupCommitLines = Math.max(1, groupCommitLines);
+        if (durability == Durability.GROUP_COMMIT) {
+            flushTask = FLUSHER.scheduleWithFixedDelay(this::flushQuietly,
+                    groupCommitMillis, groupCommitMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public synchronized void append(String line) throws IOException {
+        encode(line);
+        encode(NEWLINE);
+        pendingLines++;
+        if (durability == Durability.EVERY_WRITE
+                || (durability == Durability.GROUP_COMMIT && pendingLines >= groupCommitLines)) {
+            flush();
+        }
+    }
+
+    // the lines go into the buffer together and count as one write for the durability mode
+    public synchronized void appendAll(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        for (String line : lines) {
+            encode(line);
+            encode(NEWLINE);
+        }
+        pendingLines += lines.size();
+        if (durability == Durability.EVERY_WRITE
+                || (durability == Durability.GROUP_COMMIT && pendingLines >= groupCommitLines)) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        if (channel == null) {
+            channel = FileChannel.open(Paths.get(path),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        pendingLines = 0;
+        if (durability != Durability.ON_SHUTDOWN) {
+            channel.force(false);
+        }
+    }
+
+    // bytes appended so far, buffered ones included; a point dropHead() can cut at later
+    public synchronized long position() throws IOException {
+        if (channel != null) {
+            return channel.size() + buffer.position();
+        }
+        Path file = Paths.get(path);
+        return (Files.exists(file) ? Files.size(file) : 0) + buffer.position();
+    }
+
+    // Removes the first upTo bytes (a position() taken earlier) from the file, after
+    // copying them to archive unless that is null. Lines appended since are kept;
+    // appends only wait while those are copied into the replacement file.
+    public void dropHead(long upTo, Path archive) throws IOException {
+        flush();
+        Path file = Paths.get(path);
+        if (upTo <= 0 || !Files.exists(file)) {
+            return;
+        }
+        if (archive != null) {
+            // the head no longer changes, so it is copied without holding up appends
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                copy(in, 0, upTo, archive);
+            }
+        }
+        synchronized (this) {
+            flush();
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                copy(in, upTo, in.size(), temp);
+            }
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    // flushes and releases the file; a later append reopens it
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+            if (channel != null && durability == Durability.ON_SHUTDOWN) {
+                channel.force(false);
+            }
+        } finally {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    // stops the group-commit timer as well, for appenders that are being replaced
+    public synchronized void dispose() throws IOException {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        close();
+    }
+
+    private void encode(String s) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(s);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                flush();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+        encoder.reset();
+    }
+
+    // bytes [from, to) of in, fsynced to a new file at target
+    private static void copy(FileChannel in, long from, long to, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = from;
+            while (position < to) {
+                long copied = in.transferTo(position, to - position, out);
+                if (copied <= 0) {
+                    break; // past the end of in
+                }
+                position += copied;
+            }
+            out.force(true);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.out.println("Error writing " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.Collections;
+import java.util.List;
+
+// One page of RentalHistory.getPage. Sequence numbers are insertion positions in
+// the history, so getNextSequence() is where the following page starts.
+public class HistoryPage {
+    private final List<RentalRecord> records;
+    private final long firstSequence;
+    private final long nextSequence;
+    private final long total;
+
+    public HistoryPage(List<RentalRecord> records, long firstSequence, long total) {
+        this.records = Collections.unmodifiableList(records);
+        this.firstSequence = firstSequence;
+        this.nextSequence = firstSequence + records.size();
+        this.total = total;
+    }
+
+    public List<RentalRecord> getRecords() {
+        return records;
+    }
+
+    public long getFirstSequence() {
+        return firstSequence;
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    // records in the history when the page was taken
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean hasMore() {
+        return nextSequence < total;
+    }
+}
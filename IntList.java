@@ -0,0 +1,44 @@
+import java.util.Arrays;
+
+// Growable int array; used for the position lists of the history and search indexes.
+class IntList {
+    private int[] data = new int[4];
+    private int size;
+
+    void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    // Keeps the list ascending; values arriving slightly out of order (appends that
+    // raced) are moved back past the few larger ones at the end.
+    void addSorted(int value) {
+        add(value);
+        int i = size - 1;
+        while (i > 0 && data[i - 1] > value) {
+            data[i] = data[i - 1];
+            i--;
+        }
+        data[i] = value;
+    }
+
+    void addAll(IntList other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.data[i]);
+        }
+    }
+
+    void sort() {
+        Arrays.sort(data, 0, size);
+    }
+
+    int get(int i) {
+        return data[i];
+    }
+
+    int size() {
+        return size;
+    }
+}
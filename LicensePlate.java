@@ -0,0 +1,140 @@
+import java.nio.ByteBuffer;
+
+// A validated plate: 2-8 ASCII letters or digits, kept upper-case. The characters
+// are also packed one per byte, left-aligned, into a long, so plates hash and
+// compare as a single number and lookups by packed value need no String at all.
+// Surrounding whitespace is ignored and letters are upper-cased, so " ab12" and
+// "AB12" are the same plate.
+public final class LicensePlate implements Comparable<LicensePlate> {
+
+    // pack() result for anything that is not a valid plate; valid plates are never 0
+    public static final long INVALID = 0;
+
+    private static final int MIN_LENGTH = 2;
+    private static final int MAX_LENGTH = 8;
+
+    private final long packed;
+    private final String text;
+
+    private LicensePlate(long packed) {
+        this.packed = packed;
+        this.text = unpack(packed);
+    }
+
+    public static LicensePlate of(String plate) {
+        long packed = pack(plate);
+        if (packed == INVALID) {
+            throw new IllegalArgumentException("Invalid license plate: " + plate);
+        }
+        return new LicensePlate(packed);
+    }
+
+    // packed must come from pack()
+    public static LicensePlate fromPacked(long packed) {
+        if (packed == INVALID) {
+            throw new IllegalArgumentException("Invalid packed license plate");
+        }
+        return new LicensePlate(packed);
+    }
+
+    public static boolean isValid(CharSequence plate) {
+        return pack(plate) != INVALID;
+    }
+
+    public static long pack(CharSequence plate) {
+        if (plate == null) {
+            return INVALID;
+        }
+        int start = 0;
+        int end = plate.length();
+        while (start < end && plate.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && plate.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start < MIN_LENGTH || end - start > MAX_LENGTH) {
+            return INVALID;
+        }
+        long packed = 0;
+        for (int i = start; i < end; i++) {
+            int c = upper(plate.charAt(i));
+            if (c < 0) {
+                return INVALID;
+            }
+            packed = packed << 8 | c;
+        }
+        return packed << 8 * (MAX_LENGTH - (end - start));
+    }
+
+    // same as pack(CharSequence) for the ASCII bytes in [start, end)
+    public static long pack(ByteBuffer buf, int start, int end) {
+        while (start < end && (buf.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        if (end - start < MIN_LENGTH || end - start > MAX_LENGTH) {
+            return INVALID;
+        }
+        long packed = 0;
+        for (int i = start; i < end; i++) {
+            int c = upper(buf.get(i) & 0xFF);
+            if (c < 0) {
+                return INVALID;
+            }
+            packed = packed << 8 | c;
+        }
+        return packed << 8 * (MAX_LENGTH - (end - start));
+    }
+
+    // the upper-case form of an ASCII letter or digit, or -1
+    private static int upper(int c) {
+        if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z')) {
+            return c;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - ('a' - 'A');
+        }
+        return -1;
+    }
+
+    private static String unpack(long packed) {
+        char[] chars = new char[MAX_LENGTH];
+        int length = 0;
+        for (int shift = 8 * (MAX_LENGTH - 1); shift >= 0; shift -= 8) {
+            char c = (char) (packed >>> shift & 0xFF);
+            if (c == 0) {
+                break;
+            }
+            chars[length++] = c;
+        }
+        return new String(chars, 0, length);
+    }
+
+    public long getPacked() {
+        return packed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LicensePlate && ((LicensePlate) o).packed == packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(packed * 0x9E3779B97F4A7C15L);
+    }
+
+    // left-aligned bytes make unsigned order the same as alphabetical order
+    @Override
+    public int compareTo(LicensePlate other) {
+        return Long.compareUnsigned(packed, other.packed);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.concurrent.locks.StampedLock;
+
+// Shared, canonical make/model strings. canonical() returns the capitalised form
+// ("  toyota" -> "Toyota") as one String instance per distinct value, so a large
+// fleet keeps a few hundred make/model Strings instead of two per vehicle.
+// For ASCII input the lookup hashes and compares the raw characters as if they were
+// already trimmed and capitalised, so a value seen before allocates nothing. Other
+// input goes through the original trim/toLowerCase/toUpperCase code and String.intern().
+public final class MakeModelDictionary {
+
+    private static final MakeModelDictionary SHARED = new MakeModelDictionary();
+
+    // open addressing over the canonical strings; hashes[i] caches entries[i]'s hash
+    private String[] entries = new String[256];
+    private int[] hashes = new int[256];
+    private int count;
+    // lookups are optimistic and only fall back to a read lock if an add raced with them
+    private final StampedLock lock = new StampedLock();
+
+    // same result as Vehicle's old capitalize(), interned
+    public static String canonical(String s) {
+        return SHARED.intern(s);
+    }
+
+    public String intern(String s) {
+        if (s == null || s.isEmpty()) {
+            return null;
+        }
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end || !isAscii(s, start, end)) {
+            // rare; the JVM string table keeps these shared instead
+            return slowCapitalize(s).intern();
+        }
+
+        int hash = hash(s, start, end);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            String[] e = entries;
+            int[] h = hashes;
+            if (e.length == h.length) {
+                String found = e[slotFor(e, h, s, start, end, hash)];
+                if (lock.validate(stamp)) {
+                    if (found != null) {
+                        return found;
+                    }
+                    return add(capitalize(s, start, end));
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            String found = entries[slotFor(entries, hashes, s, start, end, hash)];
+            if (found != null) {
+                return found;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return add(capitalize(s, start, end));
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // the original Vehicle.capitalize() body; whitespace-only input still throws as it did
+    private static String slowCapitalize(String s) {
+        s = s.trim().toLowerCase();
+        return s.substring(0, 1).toUpperCase() + s.substring(1);
+    }
+
+    private static String capitalize(String s, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = canonicalChar(s.charAt(i), i == start);
+        }
+        return new String(chars);
+    }
+
+    private String add(String canonical) {
+        int hash = hash(canonical, 0, canonical.length());
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotFor(entries, hashes, canonical, 0, canonical.length(), hash);
+            if (entries[slot] != null) {
+                return entries[slot];
+            }
+            entries[slot] = canonical;
+            hashes[slot] = hash;
+            count++;
+            if (count * 2 > entries.length) {
+                resize();
+            }
+            return canonical;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // the slot holding the canonical form of s[start, end), or the empty slot where it would go
+    private static int slotFor(String[] entries, int[] hashes, String s, int start, int end, int hash) {
+        int mask = entries.length - 1;
+        int i = hash & mask;
+        while (entries[i] != null && (hashes[i] != hash || !matches(entries[i], s, start, end))) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private static boolean matches(String canonical, String s, int start, int end) {
+        if (canonical.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (canonical.charAt(i - start) != canonicalChar(s.charAt(i), i == start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + canonicalChar(s.charAt(i), i == start);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // ASCII only: upper-case for the first character, lower-case for the rest
+    private static char canonicalChar(char c, boolean first) {
+        if (first) {
+            return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+        }
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isAscii(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void resize() {
+        String[] oldEntries = entries;
+        int[] oldHashes = hashes;
+        String[] newEntries = new String[oldEntries.length * 2];
+        int[] newHashes = new int[oldHashes.length * 2];
+        for (int i = 0; i < oldEntries.length; i++) {
+            String entry = oldEntries[i];
+            if (entry != null) {
+                int slot = slotFor(newEntries, newHashes, entry, 0, entry.length(), oldHashes[i]);
+                newEntries[slot] = entry;
+                newHashes[slot] = oldHashes[i];
+            }
+        }
+        entries = newEntries;
+        hashes = newHashes;
+    }
+}
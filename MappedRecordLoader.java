@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+// Loads records.txt by memory-mapping it and scanning the bytes directly.
+// Integers, ISO dates, amounts and the plate (packed for the registry lookup, see
+// LicensePlate) are parsed in place, so a typical line allocates only its record. Anything outside the fast paths falls back to
+// the JDK parsers, so results and failures match the BufferedReader/split loader.
+public class MappedRecordLoader {
+
+    // mapped in windows so files larger than 2 GB work
+    private static final int WINDOW = 1 << 30;
+
+    private static final byte[] RENT = "RENT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RETURN = "RETURN".getBytes(StandardCharsets.US_ASCII);
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final LongFunction<Vehicle> vehicles;
+    private final IntFunction<Customer> customers;
+    private byte[] scratch = new byte[64];
+    private final int[] fieldStart = new int[6];
+    private final int[] fieldEnd = new int[6];
+    private long lastSequence;
+    private int lastDateKey = -1;
+    private LocalDate lastDate;
+    private int skippedLines;
+
+    // vehicles looks a vehicle up by its packed plate
+    public MappedRecordLoader(LongFunction<Vehicle> vehicles, IntFunction<Customer> customers) {
+        this.vehicles = vehicles;
+        this.customers = customers;
+    }
+
+    // Parses the whole file into sink, in file order. Bad numbers or dates stop the
+    // load with the same exceptions the line-based loader throws.
+    public void load(Path file, Consumer<RentalRecord> sink) throws IOException {
+        load(file, sink, null);
+    }
+
+    // As above; sequences, if not null, also gets the journal sequence of each loaded
+    // record whose line carries one (see CsvFormat.formatRecord).
+    public void load(Path file, Consumer<RentalRecord> sink, LongConsumer sequences) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW, size - position);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = length;
+                if (position + length < size) {
+                    end = lastLineEnd(buf, length);
+                    if (end == 0) {
+                        throw new IOException("Line longer than " + WINDOW + " bytes at offset " + position);
+                    }
+                }
+                parseLines(buf, 0, end, sink, sequences);
+                position += end;
+            }
+        }
+    }
+
+    // malformed lines and lines naming an unknown vehicle or customer
+    public int getSkippedLines() {
+        return skippedLines;
+    }
+
+    // position just past the last line terminator before limit, or 0 if there is none
+    static int lastLineEnd(ByteBuffer buf, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            byte b = buf.get(i);
+            if (b == '\n' || b == '\r') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Parses the complete lines in [start, end).
+    public void parseLines(ByteBuffer buf, int start, int end, Consumer<RentalRecord> sink) {
+        parseLines(buf, start, end, sink, null);
+    }
+
+    public void parseLines(ByteBuffer buf, int start, int end, Consumer<RentalRecord> sink,
+                           LongConsumer sequences) {
+        int pos = start;
+        while (pos < end) {
+            int lineEnd = pos;
+            while (lineEnd < end) {
+                byte b = buf.get(lineEnd);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                lineEnd++;
+            }
+            RentalRecord record = parseLine(buf, pos, lineEnd);
+            if (record != null) {
+                sink.accept(record);
+                if (sequences != null && lastSequence > 0) {
+                    sequences.accept(lastSequence);
+                }
+            } else if (lineEnd > pos) {
+                skippedLines++;
+            }
+            pos = lineEnd + 1;
+        }
+    }
+
+    private RentalRecord parseLine(ByteBuffer buf, int start, int end) {
+        // same rule as line.split(",").length < 5: trailing empty fields don't count
+        while (end > start && buf.get(end - 1) == ',') {
+            end--;
+        }
+        int fields = 0;
+        int fieldFrom = start;
+        for (int i = start; i <= end && fields < 6; i++) {
+            if (i == end || buf.get(i) == ',') {
+                fieldStart[fields] = fieldFrom;
+                fieldEnd[fields] = i;
+                fields++;
+                fieldFrom = i + 1;
+            }
+        }
+        if (fields < 5 || start == end) {
+            return null;
+        }
+
+        String type = parseType(buf, fieldStart[0], fieldEnd[0]);
+        long plate = LicensePlate.pack(buf, fieldStart[1], fieldEnd[1]);
+        int customerId = parseInt(buf, fieldStart[2], fieldEnd[2]);
+        LocalDate date = parseDate(buf, fieldStart[3], fieldEnd[3]);
+        double amount = parseAmount(buf, fieldStart[4], fieldEnd[4]);
+
+        Vehicle v = vehicles.apply(plate);
+        Customer c = customers.apply(customerId);
+        if (v == null || c == null) {
+            return null;
+        }
+        lastSequence = fields > 5 ? parseSequence(buf, fieldStart[5], fieldEnd[5]) : 0;
+        return new RentalRecord(v, c, date, amount, type);
+    }
+
+    private String parseType(ByteBuffer buf, int start, int end) {
+        if (matches(buf, start, end, RENT)) {
+            return "RENT";
+        }
+        if (matches(buf, start, end, RETURN)) {
+            return "RETURN";
+        }
+        return text(buf, start, end);
+    }
+
+    private int parseInt(ByteBuffer buf, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+        // up to 9 digits cannot overflow an int
+        if (i == end || end - i > 9) {
+            return Integer.parseInt(text(buf, start, end));
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return Integer.parseInt(text(buf, start, end));
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    // CsvFormat.formatRecord writes plain digits; anything else counts as no sequence
+    private static long parseSequence(ByteBuffer buf, int start, int end) {
+        if (start == end || end - start > 18) {
+            return 0;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return 0;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private LocalDate parseDate(ByteBuffer buf, int start, int end) {
+        if (end - start != 10 || buf.get(start + 4) != '-' || buf.get(start + 7) != '-') {
+            return LocalDate.parse(text(buf, start, end));
+        }
+        int year = digits(buf, start, 4);
+        int month = digits(buf, start + 5, 2);
+        int day = digits(buf, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return LocalDate.parse(text(buf, start, end));
+        }
+        int key = year * 10000 + month * 100 + day;
+        if (key != lastDateKey) {
+            try {
+                lastDate = LocalDate.of(year, month, day);
+            } catch (DateTimeException e) {
+                return LocalDate.parse(text(buf, start, end)); // rethrows as DateTimeParseException
+            }
+            lastDateKey = key;
+        }
+        return lastDate;
+    }
+
+    // [-]digits[.digits] with at most 15 digits is exact as mantissa / 10^scale,
+    // which is exactly what Double.parseDouble returns for it
+    private double parseAmount(ByteBuffer buf, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && buf.get(i) == '-') {
+            negative = true;
+            i++;
+        }
+        long mantissa = 0;
+        int digitCount = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digitCount++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                digitCount = -1;
+                break;
+            }
+        }
+        if (digitCount <= 0 || digitCount > 15) {
+            return Double.parseDouble(text(buf, start, end));
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static int digits(ByteBuffer buf, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static boolean matches(ByteBuffer buf, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buf.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // slow path only: the field text for a JDK parser or an unusual record type
+    private String text(ByteBuffer buf, int start, int end) {
+        int length = copy(buf, start, end);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int copy(ByteBuffer buf, int start, int end) {
+        int length = end - start;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buf.get(start, scratch, 0, length);
+        return length;
+    }
+}
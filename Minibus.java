@@ -6,6 +6,10 @@ public class Minibus extends Vehicle implements Rentable {
         this.isAccessible = isAccessible;
     }
 
+    public boolean isAccessible() {
+        return isAccessible;
+    }
+
     @Override
     public String getInfo() {
         return super.getInfo() + " | Accessible: " + (isAccessible ? "Yes" : "No");
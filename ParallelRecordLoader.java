@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+// Splits records.txt into line-aligned chunks, parses them on a ForkJoinPool with
+// one MappedRecordLoader each, and hands the records to the sink in file order.
+// Like the sequential loaders, the first bad number or date ends the load: records
+// before it are kept and everything after it is dropped.
+public class ParallelRecordLoader {
+
+    private static final long MIN_CHUNK = 1 << 20;
+    private static final long MAX_CHUNK = 1 << 30;
+
+    private final LongFunction<Vehicle> vehicles;
+    private final IntFunction<Customer> customers;
+    private final ForkJoinPool pool;
+
+    private static class Chunk {
+        final long start;
+        final long end;
+        final List<RentalRecord> records = new ArrayList<>();
+        long[] sequences = new long[16];
+        int sequenceCount;
+        int skipped;
+        Exception error;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void addSequence(long seq) {
+            if (sequenceCount == sequences.length) {
+                sequences = Arrays.copyOf(sequences, sequenceCount * 2);
+            }
+            sequences[sequenceCount++] = seq;
+        }
+    }
+
+    public ParallelRecordLoader(LongFunction<Vehicle> vehicles, IntFunction<Customer> customers,
+                                ForkJoinPool pool) {
+        this.vehicles = vehicles;
+        this.customers = customers;
+        this.pool = pool;
+    }
+
+    public void load(Path file, Consumer<RentalRecord> sink) throws IOException {
+        load(file, sink, null);
+    }
+
+    // sequences, if not null, gets the journal sequences as MappedRecordLoader reports them
+    public void load(Path file, Consumer<RentalRecord> sink, LongConsumer sequences) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel);
+            List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                tasks.add(pool.submit(() -> parse(channel, chunk)));
+            }
+
+            Exception error = null;
+            int[] skipped = new int[chunks.size()];
+            boolean anySkipped = false;
+            for (int i = 0; i < tasks.size(); i++) {
+                Chunk chunk = tasks.get(i).join();
+                skipped[i] = chunk.skipped;
+                anySkipped |= chunk.skipped > 0;
+                if (error == null) {
+                    chunk.records.forEach(sink);
+                    for (int j = 0; sequences != null && j < chunk.sequenceCount; j++) {
+                        sequences.accept(chunk.sequences[j]);
+                    }
+                    error = chunk.error;
+                }
+            }
+            if (anySkipped) {
+                System.out.println("Skipped record lines per chunk (" + chunks.size() + " chunks): "
+                        + Arrays.toString(skipped));
+            }
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            if (error != null) {
+                throw (RuntimeException) error;
+            }
+        }
+    }
+
+    private Chunk parse(FileChannel channel, Chunk chunk) {
+        MappedRecordLoader parser = new MappedRecordLoader(vehicles, customers);
+        try {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                    chunk.start, chunk.end - chunk.start);
+            parser.parseLines(buf, 0, buf.limit(), chunk.records::add, chunk::addSequence);
+        } catch (IOException | RuntimeException e) {
+            chunk.error = e; // NumberFormatException / DateTimeParseException, as in the line loader
+        }
+        chunk.skipped = parser.getSkippedLines();
+        return chunk;
+    }
+
+    private List<Chunk> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long target = size / (pool.getParallelism() * 4L);
+        target = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, target));
+
+        List<Chunk> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + target >= size ? size : nextLineStart(channel, start + target, size);
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // first position at or after from that begins a line
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long pos = from - 1;
+        while (pos < size) {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                byte b = buf.get(i);
+                if (b == '\n' || b == '\r') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+}
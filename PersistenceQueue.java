@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded ring buffer of lines for the flat files, drained by one writer thread.
+// Producers claim a sequence number with a CAS (only while a slot is free), fill the
+// slot and publish it; submit() never touches the disk. The writer takes everything
+// published so far, appends it, flushes each file it touched once and only then
+// marks that range durable. With a journal attached the writer syncs the journal
+// first, so on disk the journal stays ahead of records.txt.
+public class PersistenceQueue {
+
+    // what a producer does while the ring is full
+    public enum BackPressure {
+        BLOCK, // park briefly between checks
+        SPIN;  // busy-wait; lowest latency when the ring is only full for a moment
+
+        public static BackPressure parse(String s) {
+            if (s == null) {
+                return BLOCK;
+            }
+            return valueOf(s.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FULL_PARK_NANOS = 50_000;
+
+    private final int mask;
+    private final FileAppender[] targets;
+    private final String[] lines;
+    // published.get(slot) == seq once the slot holds seq's line
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final BackPressure backPressure;
+    private final RentalJournal journal;
+    private final Thread writer;
+    private volatile boolean writerParked;
+    // last sequence taken out of the ring / last one written to its file
+    private volatile long consumed;
+    private volatile long durable;
+    private final Object durableLock = new Object();
+
+    private final AtomicLong fullWaits = new AtomicLong();
+    private volatile long peakDepth;
+    private volatile long batches;
+
+    // capacity is rounded up to a power of two; journal may be null
+    public PersistenceQueue(int capacity, BackPressure backPressure, RentalJournal journal) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.targets = new FileAppender[size];
+        this.lines = new String[size];
+        this.published = new AtomicLongArray(size);
+        this.backPressure = backPressure;
+        this.journal = journal;
+        writer = new Thread(this::drain, "rental-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Queues line for target and returns its sequence number; waits only if the ring is full.
+    public long submit(FileAppender target, String line) {
+        long seq;
+        boolean waited = false;
+        while (true) {
+            long last = claimed.get();
+            if (last - consumed > mask) {
+                if (!waited) {
+                    fullWaits.incrementAndGet();
+                    waited = true;
+                }
+                waitForSpace();
+                continue;
+            }
+            if (claimed.compareAndSet(last, last + 1)) {
+                seq = last + 1;
+                break;
+            }
+        }
+        int slot = (int) (seq & mask);
+        targets[slot] = target;
+        lines[slot] = line;
+        published.set(slot, seq); // volatile write: the writer sees the slot filled
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        return seq;
+    }
+
+    // Blocks until every line up to seq is written to its file.
+    public void awaitDurable(long seq) {
+        if (durable >= seq) {
+            return;
+        }
+        boolean interrupted = false;
+        synchronized (durableLock) {
+            while (durable < seq) {
+                LockSupport.unpark(writer);
+                try {
+                    durableLock.wait(10);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Blocks until everything submitted before the call is written.
+    public void flush() {
+        awaitDurable(claimed.get());
+    }
+
+    public long getLastSequence() {
+        return claimed.get();
+    }
+
+    public long getDurableSequence() {
+        return durable;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // lines submitted but not yet taken by the writer
+    public long getQueueDepth() {
+        return claimed.get() - consumed;
+    }
+
+    public long getPeakQueueDepth() {
+        return peakDepth;
+    }
+
+    // submits that found the ring full and had to wait
+    public long getFullWaits() {
+        return fullWaits.get();
+    }
+
+    // writer passes; getDurableSequence() / getBatches() is the average batch size
+    public long getBatches() {
+        return batches;
+    }
+
+    private void waitForSpace() {
+        if (backPressure == BackPressure.SPIN) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    private void drain() {
+        List<FileAppender> touched = new ArrayList<>();
+        while (true) {
+            long next = consumed + 1;
+            if (published.get((int) (next & mask)) != next) {
+                writerParked = true;
+                if (published.get((int) (next & mask)) != next) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                writerParked = false;
+                continue;
+            }
+            long last = next;
+            while (published.get((int) ((last + 1) & mask)) == last + 1) {
+                last++;
+            }
+            peakDepth = Math.max(peakDepth, claimed.get() - consumed);
+
+            if (journal != null) {
+                try {
+                    journal.awaitDurable(journal.getLastSequence());
+                } catch (IOException e) {
+                    System.out.println("Error writing journal: " + e.getMessage());
+                }
+            }
+            for (long seq = next; seq <= last; seq++) {
+                int slot = (int) (seq & mask);
+                FileAppender target = targets[slot];
+                String line = lines[slot];
+                targets[slot] = null;
+                lines[slot] = null;
+                try {
+                    target.append(line);
+                } catch (IOException e) {
+                    System.out.println("Error writing " + target.getPath() + ": " + e.getMessage());
+                }
+                if (!touched.contains(target)) {
+                    touched.add(target);
+                }
+            }
+            consumed = last; // the slots can be reused from here on
+            for (FileAppender target : touched) {
+                try {
+                    target.flush();
+                } catch (IOException e) {
+                    System.out.println("Error writing " + target.getPath() + ": " + e.getMessage());
+                }
+            }
+            touched.clear();
+            batches++;
+            synchronized (durableLock) {
+                durable = last;
+                durableLock.notifyAll();
+            }
+        }
+    }
+}
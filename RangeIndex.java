@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+// Ordinals grouped by a sortable long key, for VehicleSearch's range criteria. A
+// Fenwick tree over the key slots keeps cumulative counts, so how many ordinals fall
+// in a key range is two prefix sums rather than a walk over every key. A key not seen
+// before shifts the slots and rebuilds the tree; attributes such as year or seats
+// take few distinct values, so that is rare next to adds of a known key.
+class RangeIndex {
+    private long[] keys = new long[16];
+    private IntList[] ordinals = new IntList[16];
+    // tree[i] covers the slots (i - (i & -i), i]
+    private int[] tree = new int[17];
+    private int keyCount;
+
+    // doubles as longs in the same order (NaN aside); ints can be used as they are
+    static long key(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    void add(long key, int ordinal) {
+        int slot = Arrays.binarySearch(keys, 0, keyCount, key);
+        if (slot < 0) {
+            slot = -slot - 1;
+            insert(slot, key);
+        }
+        ordinals[slot].add(ordinal);
+        for (int i = slot + 1; i <= keyCount; i += i & -i) {
+            tree[i]++;
+        }
+    }
+
+    // ordinals with a key in [min, max]
+    int count(long min, long max) {
+        int from = lowerSlot(min);
+        int to = upperSlot(max);
+        return from >= to ? 0 : prefix(to) - prefix(from);
+    }
+
+    // appends them to out, grouped by key in key order
+    void collect(long min, long max, IntList out) {
+        for (int slot = lowerSlot(min), to = upperSlot(max); slot < to; slot++) {
+            out.addAll(ordinals[slot]);
+        }
+    }
+
+    // ordinals in slots [0, slots)
+    private int prefix(int slots) {
+        int sum = 0;
+        for (int i = slots; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // first slot with a key >= min
+    private int lowerSlot(long min) {
+        int slot = Arrays.binarySearch(keys, 0, keyCount, min);
+        return slot < 0 ? -slot - 1 : slot;
+    }
+
+    // first slot with a key > max
+    private int upperSlot(long max) {
+        int slot = Arrays.binarySearch(keys, 0, keyCount, max);
+        return slot < 0 ? -slot - 1 : slot + 1;
+    }
+
+    private void insert(int slot, long key) {
+        if (keyCount == keys.length) {
+            keys = Arrays.copyOf(keys, keyCount * 2);
+            ordinals = Arrays.copyOf(ordinals, keyCount * 2);
+            tree = new int[keyCount * 2 + 1];
+        }
+        System.arraycopy(keys, slot, keys, slot + 1, keyCount - slot);
+        System.arraycopy(ordinals, slot, ordinals, slot + 1, keyCount - slot);
+        keys[slot] = key;
+        ordinals[slot] = new IntList();
+        keyCount++;
+
+        // linear-time build: each node passes its total up to its parent
+        Arrays.fill(tree, 0);
+        for (int i = 1; i <= keyCount; i++) {
+            tree[i] += ordinals[i - 1].size();
+            int parent = i + (i & -i);
+            if (parent <= keyCount) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Revenue, utilisation, top customers and rental duration, kept up to date one
+// record at a time: RentalHistory.addRecord calls add(), so every dashboard read
+// below is a lookup rather than a pass over the history. compute() builds the
+// same figures from a list of records in one go, on the common fork/join pool.
+//
+// A rental is a RENT followed by the next RETURN of the same vehicle. It lasts
+// the days between the two dates, and at least one day. Amounts are summed in cents.
+//
+// add() runs on every transaction, so nothing here is one lock: revenue is kept in
+// striped and atomic counters, each vehicle's usage and each customer's spend under
+// its own monitor, and the top-spender ranking is only locked for customers who are
+// in it or about to enter it.
+public class RentalAnalytics {
+
+    private static final VehicleType[] TYPES = VehicleType.values();
+    // how many top spenders are kept in order; longer top lists sort every customer
+    private static final int RANKED = 100;
+
+    // guarded by its own monitor; records of one vehicle arrive in order (under its lock)
+    private static class Usage {
+        long firstDay = Long.MAX_VALUE;
+        long rentedDays;
+        long openSince = -1; // day of an unreturned RENT
+    }
+
+    private static class Spend {
+        final Customer customer;
+        // written under the Spend's monitor
+        volatile long cents;
+        // its entry in the ranking, or null; guarded by the ranking
+        CustomerSpend rankedAs;
+
+        Spend(Customer customer) {
+            this.customer = customer;
+        }
+    }
+
+    public static class CustomerSpend {
+        private final Customer customer;
+        private final long cents;
+
+        CustomerSpend(Customer customer, long cents) {
+            this.customer = customer;
+            this.cents = cents;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public double getAmount() {
+            return cents / 100.0;
+        }
+
+        @Override
+        public String toString() {
+            return customer.getCustomerName() + ": $" + getAmount();
+        }
+    }
+
+    private static final Comparator<CustomerSpend> BY_SPEND = Comparator
+            .comparingLong((CustomerSpend s) -> -s.cents)
+            .thenComparingInt(s -> s.customer.getCustomerId());
+
+    // epoch day -> cents per type, with the last slot for vehicles of no known type
+    private final Map<Long, AtomicLongArray> dailyRevenue = new ConcurrentHashMap<>();
+    private final LongAdder[] revenueByType = new LongAdder[TYPES.length + 1];
+    private final Map<LicensePlate, Usage> usage = new ConcurrentHashMap<>();
+    private final Map<Integer, Spend> spendByCustomer = new ConcurrentHashMap<>();
+    // The RANKED biggest spenders, biggest first, as immutable entries; the set is its
+    // own lock. Spends only grow, so nobody outside can overtake someone inside
+    // without first passing the smallest ranked one, rankFloor. A negative amount
+    // breaks that; the ranking is then rebuilt on the next read.
+    private final TreeSet<CustomerSpend> ranked = new TreeSet<>(BY_SPEND);
+    private volatile long rankFloor = Long.MIN_VALUE;
+    private volatile boolean rankingStale;
+    private final LongAdder completedRentals = new LongAdder();
+    private final LongAdder completedDays = new LongAdder();
+
+    public RentalAnalytics() {
+        for (int i = 0; i < revenueByType.length; i++) {
+            revenueByType[i] = new LongAdder();
+        }
+    }
+
+    public void add(RentalRecord record) {
+        long cents = Math.round(record.getTotalAmount() * 100);
+        long day = record.getRecordDate().toEpochDay();
+        int slot = typeSlot(VehicleType.of(record.getVehicle()));
+        dailyRevenue.computeIfAbsent(day, d -> new AtomicLongArray(TYPES.length + 1)).addAndGet(slot, cents);
+        revenueByType[slot].add(cents);
+        addSpend(record.getCustomer(), cents);
+
+        Usage u = usage.computeIfAbsent(record.getVehicle().getPlate(), p -> new Usage());
+        synchronized (u) {
+            u.firstDay = Math.min(u.firstDay, day);
+            if ("RENT".equals(record.getRecordType())) {
+                u.openSince = day;
+            } else if ("RETURN".equals(record.getRecordType()) && u.openSince >= 0) {
+                long days = Math.max(1, day - u.openSince);
+                u.rentedDays += days;
+                u.openSince = -1;
+                completedRentals.increment();
+                completedDays.add(days);
+            }
+        }
+    }
+
+    private void addSpend(Customer customer, long cents) {
+        Spend spend = spendByCustomer.computeIfAbsent(customer.getCustomerId(), id -> new Spend(customer));
+        long total;
+        synchronized (spend) {
+            total = spend.cents + cents;
+            spend.cents = total;
+        }
+        if (cents < 0) {
+            rankingStale = true;
+        } else if (!rankingStale && total >= rankFloor) {
+            synchronized (ranked) {
+                if (!rankingStale) {
+                    rank(spend);
+                }
+            }
+        }
+    }
+
+    // caller holds the ranking; takes the spend's latest amount, so whichever add
+    // ranks it last leaves it where it belongs
+    private void rank(Spend spend) {
+        if (spend.rankedAs != null) {
+            ranked.remove(spend.rankedAs);
+            spend.rankedAs = null;
+        }
+        CustomerSpend entry = new CustomerSpend(spend.customer, spend.cents);
+        if (ranked.size() < RANKED) {
+            ranked.add(entry);
+            spend.rankedAs = entry;
+        } else if (BY_SPEND.compare(entry, ranked.last()) < 0) {
+            spendByCustomer.get(ranked.pollLast().customer.getCustomerId()).rankedAs = null;
+            ranked.add(entry);
+            spend.rankedAs = entry;
+        }
+        rankFloor = ranked.size() < RANKED ? Long.MIN_VALUE : ranked.last().cents;
+    }
+
+    // revenue booked on the day for vehicles of the type (null: of no known type)
+    public double getRevenue(LocalDate day, VehicleType type) {
+        AtomicLongArray cents = dailyRevenue.get(day.toEpochDay());
+        return cents == null ? 0 : cents.get(typeSlot(type)) / 100.0;
+    }
+
+    public double getRevenue(LocalDate day) {
+        AtomicLongArray cents = dailyRevenue.get(day.toEpochDay());
+        long total = 0;
+        for (int i = 0; cents != null && i < cents.length(); i++) {
+            total += cents.get(i);
+        }
+        return total / 100.0;
+    }
+
+    public double getTotalRevenue(VehicleType type) {
+        return revenueByType[typeSlot(type)].sum() / 100.0;
+    }
+
+    // Days rented / days owned, where ownership starts at the vehicle's first record
+    // and a rental still open counts up to asOf. 0 for a vehicle with no records.
+    public double getUtilisation(String plate, LocalDate asOf) {
+        long packed = LicensePlate.pack(plate);
+        Usage u = packed == LicensePlate.INVALID ? null : usage.get(LicensePlate.fromPacked(packed));
+        if (u == null) {
+            return 0;
+        }
+        long today = asOf.toEpochDay();
+        synchronized (u) {
+            if (today < u.firstDay) {
+                return 0;
+            }
+            long rented = u.rentedDays;
+            if (u.openSince >= 0 && today >= u.openSince) {
+                rented += Math.max(1, today - u.openSince);
+            }
+            return Math.min(1.0, rented / (double) (today - u.firstDay + 1));
+        }
+    }
+
+    // the n customers who spent most, biggest first
+    public List<CustomerSpend> getTopCustomers(int n) {
+        List<CustomerSpend> order;
+        if (n > RANKED) {
+            order = new ArrayList<>();
+            for (Spend spend : spendByCustomer.values()) {
+                order.add(new CustomerSpend(spend.customer, spend.cents));
+            }
+            order.sort(BY_SPEND);
+        } else {
+            synchronized (ranked) {
+                if (rankingStale) {
+                    // cleared first: adds from here on rank themselves once this is done
+                    rankingStale = false;
+                    for (CustomerSpend entry : ranked) {
+                        spendByCustomer.get(entry.customer.getCustomerId()).rankedAs = null;
+                    }
+                    ranked.clear();
+                    rankFloor = Long.MIN_VALUE;
+                    for (Spend spend : spendByCustomer.values()) {
+                        rank(spend);
+                    }
+                }
+                order = new ArrayList<>(ranked);
+            }
+        }
+        return order.size() > n ? new ArrayList<>(order.subList(0, n)) : order;
+    }
+
+    public double getAverageRentalDays() {
+        long rentals = completedRentals.sum();
+        return rentals == 0 ? 0 : completedDays.sum() / (double) rentals;
+    }
+
+    public long getCompletedRentals() {
+        return completedRentals.sum();
+    }
+
+    // Figures for records (e.g. an archived records file) without replaying them
+    // one by one: records are grouped by vehicle, each vehicle's rentals are paired
+    // in parallel and the partial results merged.
+    public static RentalAnalytics compute(List<RentalRecord> records) {
+        Map<LicensePlate, List<RentalRecord>> byVehicle = records.parallelStream()
+                .collect(Collectors.groupingBy(r -> r.getVehicle().getPlate())); // keeps record order per vehicle
+        return byVehicle.values().parallelStream()
+                .map(vehicleRecords -> {
+                    RentalAnalytics part = new RentalAnalytics();
+                    for (RentalRecord r : vehicleRecords) {
+                        part.add(r);
+                    }
+                    return part;
+                })
+                .reduce(RentalAnalytics::merge)
+                .orElseGet(RentalAnalytics::new);
+    }
+
+    // a and b cover different vehicles; returns a with b added in
+    private static RentalAnalytics merge(RentalAnalytics a, RentalAnalytics b) {
+        for (Map.Entry<Long, AtomicLongArray> e : b.dailyRevenue.entrySet()) {
+            AtomicLongArray into = a.dailyRevenue.computeIfAbsent(e.getKey(), d -> new AtomicLongArray(TYPES.length + 1));
+            for (int i = 0; i < into.length(); i++) {
+                into.addAndGet(i, e.getValue().get(i));
+            }
+        }
+        for (int i = 0; i < a.revenueByType.length; i++) {
+            a.revenueByType[i].add(b.revenueByType[i].sum());
+        }
+        a.usage.putAll(b.usage);
+        for (Spend spend : b.spendByCustomer.values()) {
+            a.addSpend(spend.customer, spend.cents);
+        }
+        a.completedRentals.add(b.completedRentals.sum());
+        a.completedDays.add(b.completedDays.sum());
+        return a;
+    }
+
+    private static int typeSlot(VehicleType type) {
+        return type == null ? TYPES.length : type.ordinal();
+    }
+}
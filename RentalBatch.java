@@ -0,0 +1,87 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// A list of rent/return commands for RentalSystem.applyBatch, e.g.
+//
+//   new RentalBatch().rent(van1, acme, today, 90).rent(van2, acme, today, 90)
+//
+// Commands are checked and applied in order, so a batch may rent a vehicle and
+// return it again later in the same batch.
+public class RentalBatch {
+
+    public enum Mode {
+        ALL_OR_NOTHING, // apply nothing unless every command is valid
+        BEST_EFFORT     // apply the valid commands, skip the rest
+    }
+
+    public enum Outcome {
+        APPLIED,
+        NOT_AVAILABLE, // rent of a vehicle that is not Available at that point
+        NOT_RENTED,    // return of a vehicle that is not Rented at that point
+        RESERVED,      // rent on a day another customer has booked
+        INVALID,       // missing vehicle, customer or date
+        SKIPPED        // valid, but another command failed an ALL_OR_NOTHING batch
+    }
+
+    static class Command {
+        final boolean rent;
+        final Vehicle vehicle;
+        final Customer customer;
+        final LocalDate date;
+        final double amount;
+
+        Command(boolean rent, Vehicle vehicle, Customer customer, LocalDate date, double amount) {
+            this.rent = rent;
+            this.vehicle = vehicle;
+            this.customer = customer;
+            this.date = date;
+            this.amount = amount;
+        }
+    }
+
+    public static class Result {
+        private final List<Outcome> outcomes;
+        private final int appliedCount;
+
+        Result(Outcome[] outcomes, int appliedCount) {
+            this.outcomes = Collections.unmodifiableList(Arrays.asList(outcomes));
+            this.appliedCount = appliedCount;
+        }
+
+        // one outcome per command, in batch order
+        public List<Outcome> getOutcomes() {
+            return outcomes;
+        }
+
+        public Outcome getOutcome(int index) {
+            return outcomes.get(index);
+        }
+
+        public int getAppliedCount() {
+            return appliedCount;
+        }
+
+        public boolean isFullyApplied() {
+            return appliedCount == outcomes.size();
+        }
+    }
+
+    final List<Command> commands = new ArrayList<>();
+
+    public RentalBatch rent(Vehicle vehicle, Customer customer, LocalDate date, double amount) {
+        commands.add(new Command(true, vehicle, customer, date, amount));
+        return this;
+    }
+
+    public RentalBatch returnVehicle(Vehicle vehicle, Customer customer, LocalDate date, double extraFees) {
+        commands.add(new Command(false, vehicle, customer, date, extraFees));
+        return this;
+    }
+
+    public int size() {
+        return commands.size();
+    }
+}
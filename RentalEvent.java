@@ -0,0 +1,117 @@
+// One change published by RentalSystem through its RentalEventBus. Which fields are
+// set depends on the type: the vehicle for everything but CUSTOMER_ADDED, the
+// customer for all but VEHICLE_ADDED and STATUS_CHANGED, the record for RENTED and
+// RETURNED, the reservation for RESERVED and CANCELLED, and the previous status for
+// STATUS_CHANGED.
+public class RentalEvent {
+
+    public enum Type {
+        VEHICLE_ADDED,
+        CUSTOMER_ADDED,
+        // a status change other than by a rent or return (those are RENTED / RETURNED)
+        STATUS_CHANGED,
+        RENTED,
+        RETURNED,
+        // a booking made or cancelled; the vehicle's status is unchanged
+        RESERVED,
+        CANCELLED
+    }
+
+    private final Type type;
+    private final Vehicle vehicle;
+    private final Customer customer;
+    private final RentalRecord record;
+    private final Reservation reservation;
+    private final Vehicle.VehicleStatus previousStatus;
+    private final Vehicle.VehicleStatus status;
+    // set by the bus when the event is published
+    long sequence;
+
+    private RentalEvent(Type type, Vehicle vehicle, Customer customer, RentalRecord record,
+                        Reservation reservation, Vehicle.VehicleStatus previousStatus,
+                        Vehicle.VehicleStatus status) {
+        this.type = type;
+        this.vehicle = vehicle;
+        this.customer = customer;
+        this.record = record;
+        this.reservation = reservation;
+        this.previousStatus = previousStatus;
+        this.status = status;
+    }
+
+    public static RentalEvent vehicleAdded(Vehicle vehicle) {
+        return new RentalEvent(Type.VEHICLE_ADDED, vehicle, null, null, null, null, vehicle.getStatus());
+    }
+
+    public static RentalEvent customerAdded(Customer customer) {
+        return new RentalEvent(Type.CUSTOMER_ADDED, null, customer, null, null, null, null);
+    }
+
+    public static RentalEvent statusChanged(Vehicle vehicle, Vehicle.VehicleStatus previous,
+                                            Vehicle.VehicleStatus status) {
+        return new RentalEvent(Type.STATUS_CHANGED, vehicle, null, null, null, previous, status);
+    }
+
+    // a RENT or RETURN record
+    public static RentalEvent recorded(RentalRecord record) {
+        boolean rent = "RENT".equals(record.getRecordType());
+        return new RentalEvent(rent ? Type.RENTED : Type.RETURNED, record.getVehicle(), record.getCustomer(),
+                record, null, rent ? Vehicle.VehicleStatus.Available : Vehicle.VehicleStatus.Rented,
+                rent ? Vehicle.VehicleStatus.Rented : Vehicle.VehicleStatus.Available);
+    }
+
+    public static RentalEvent reserved(Reservation reservation) {
+        return reservationEvent(Type.RESERVED, reservation);
+    }
+
+    public static RentalEvent cancelled(Reservation reservation) {
+        return reservationEvent(Type.CANCELLED, reservation);
+    }
+
+    private static RentalEvent reservationEvent(Type type, Reservation reservation) {
+        Vehicle vehicle = reservation.getVehicle();
+        return new RentalEvent(type, vehicle, reservation.getCustomer(), null, reservation,
+                vehicle.getStatus(), vehicle.getStatus());
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public RentalRecord getRecord() {
+        return record;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    public Vehicle.VehicleStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    // the vehicle's status right after the change
+    public Vehicle.VehicleStatus getStatus() {
+        return status;
+    }
+
+    // Publication order on the bus, from 1. Events for one vehicle (or one customer)
+    // are numbered in the order they happened.
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        String subject = vehicle != null ? vehicle.getLicensePlate() : String.valueOf(customer.getCustomerId());
+        return "#" + sequence + " " + type + " " + subject;
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Delivers RentalSystem's changes to subscribers as they happen, so nothing has to
+// poll or scan the fleet. publish() runs on the thread that made the change, with
+// that vehicle's (or customer's) lock held:
+//  - a Subscriber is called right there, so it sees the change before the caller
+//    returns and must be quick;
+//  - a BatchSubscriber gets its own bounded queue and thread, and is handed
+//    everything queued since its last call in one list, so a slow consumer catches
+//    up in big batches instead of falling further behind. When its queue is full
+//    publishers wait for it rather than drop events.
+// With nobody subscribed RentalSystem does not even create the events.
+public class RentalEventBus {
+
+    public interface Subscriber {
+        void onEvent(RentalEvent event);
+    }
+
+    public interface BatchSubscriber {
+        // events is reused for the next batch; copy what must be kept
+        void onEvents(List<RentalEvent> events);
+    }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_MAX_BATCH = 1024;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    // Handle returned by subscribe; cancel() stops delivery.
+    public class Subscription {
+        private final Subscriber subscriber;
+        private final BatchSubscriber batchSubscriber;
+        private final ArrayBlockingQueue<RentalEvent> queue;
+        private final int maxBatch;
+        private final Thread thread;
+        private volatile boolean cancelled;
+        private final AtomicLong queued = new AtomicLong();
+        private volatile long delivered;
+        private volatile long batches;
+        private final Object deliveredLock = new Object();
+
+        private Subscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+            this.batchSubscriber = null;
+            this.queue = null;
+            this.maxBatch = 1;
+            this.thread = null;
+        }
+
+        private Subscription(BatchSubscriber batchSubscriber, int capacity, int maxBatch) {
+            this.subscriber = null;
+            this.batchSubscriber = batchSubscriber;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.maxBatch = maxBatch;
+            this.thread = new Thread(this::deliver, "rental-events-" + THREADS.incrementAndGet());
+            this.thread.setDaemon(true);
+        }
+
+        public boolean isAsync() {
+            return queue != null;
+        }
+
+        // events queued but not yet handed to an async subscriber (0 for a synchronous one)
+        public int getPending() {
+            return queue == null ? 0 : queue.size();
+        }
+
+        // events an async subscriber has processed
+        public long getDelivered() {
+            return delivered;
+        }
+
+        // calls to an async subscriber; getDelivered() / getBatches() is the average batch size
+        public long getBatches() {
+            return batches;
+        }
+
+        // Waits until an async subscriber has processed everything queued for it before
+        // the call; false on timeout.
+        public boolean awaitDelivered(long timeoutMillis) throws InterruptedException {
+            long target = queued.get();
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            synchronized (deliveredLock) {
+                while (delivered < target && !cancelled) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) {
+                        return false;
+                    }
+                    deliveredLock.wait(left);
+                }
+            }
+            return delivered >= target;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+            if (thread != null) {
+                thread.interrupt();
+                queue.clear();
+            }
+        }
+
+        private void publish(RentalEvent event) {
+            if (queue == null) {
+                try {
+                    subscriber.onEvent(event);
+                } catch (RuntimeException e) {
+                    System.out.println("Error in event subscriber: " + e);
+                }
+                return;
+            }
+            queued.incrementAndGet();
+            boolean interrupted = false;
+            // a cancelled subscription stops taking events, so waiting publishers give up
+            while (!cancelled) {
+                try {
+                    if (queue.offer(event, 10, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void deliver() {
+            List<RentalEvent> batch = new ArrayList<>(maxBatch);
+            while (!cancelled) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    continue; // cancel() interrupts; the loop checks why
+                }
+                queue.drainTo(batch, maxBatch - 1);
+                try {
+                    batchSubscriber.onEvents(batch);
+                } catch (RuntimeException e) {
+                    System.out.println("Error in event subscriber: " + e);
+                }
+                synchronized (deliveredLock) {
+                    delivered += batch.size();
+                    batches++;
+                    deliveredLock.notifyAll();
+                }
+                batch.clear();
+            }
+            synchronized (deliveredLock) {
+                deliveredLock.notifyAll();
+            }
+        }
+    }
+
+    // copied on every subscribe/cancel, so publish() reads it without locking or allocating
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    public synchronized Subscription subscribe(Subscriber subscriber) {
+        Subscription s = new Subscription(subscriber);
+        add(s);
+        return s;
+    }
+
+    public Subscription subscribeAsync(BatchSubscriber subscriber) {
+        return subscribeAsync(subscriber, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    // capacity: events that may wait for the subscriber; maxBatch: most events per call
+    public synchronized Subscription subscribeAsync(BatchSubscriber subscriber, int capacity, int maxBatch) {
+        if (capacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("capacity and maxBatch must be positive");
+        }
+        Subscription s = new Subscription(subscriber, capacity, maxBatch);
+        add(s);
+        s.thread.start();
+        return s;
+    }
+
+    public boolean hasSubscribers() {
+        return subscriptions.length > 0;
+    }
+
+    // number of the last event published
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    // Numbers the event and hands it to every subscriber, in the order they subscribed.
+    public void publish(RentalEvent event) {
+        Subscription[] current = subscriptions;
+        if (current.length == 0) {
+            return;
+        }
+        event.sequence = lastSequence.incrementAndGet();
+        for (Subscription s : current) {
+            s.publish(event);
+        }
+    }
+
+    private void add(Subscription s) {
+        Subscription[] grown = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        grown[grown.length - 1] = s;
+        subscriptions = grown;
+    }
+
+    private synchronized void remove(Subscription s) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == s) {
+                Subscription[] shrunk = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, shrunk.length - i);
+                subscriptions = shrunk;
+                return;
+            }
+        }
+    }
+}
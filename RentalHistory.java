@@ -1,34 +1,208 @@
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class RentalHistory {
-    private List<RentalRecord> rentalRecords = new ArrayList<>();
+    private AppendOnlyList<RentalRecord> rentalRecords = new AppendOnlyList<>();
+
+    // Secondary indexes hold positions into rentalRecords, ascending. The maps are
+    // concurrent and each position list is guarded by its own monitor, so adds for
+    // different vehicles, customers and days don't contend with each other or with
+    // queries; only the append to rentalRecords itself is serialised.
+    private final Map<LicensePlate, IntList> byPlate = new ConcurrentHashMap<>();
+    private final Map<Integer, IntList> byCustomerId = new ConcurrentHashMap<>();
+    private final Map<String, IntList> byNameToken = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<LocalDate, IntList> byDate = new ConcurrentSkipListMap<>();
+    // lower-cased Customer.toString() per customer, computed once
+    private final Map<Integer, String> customerSearchKeys = new ConcurrentHashMap<>();
+    // running totals; records of one vehicle arrive in order (under its rent/return lock)
+    private final RentalAnalytics analytics = new RentalAnalytics();
 
     public void addRecord(RentalRecord record) {
-        rentalRecords.add(record);
+        indexRecord(record);
+        analytics.add(record);
+    }
+
+    public RentalAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    private void indexRecord(RentalRecord record) {
+        int pos = rentalRecords.append(record);
+
+        Customer customer = record.getCustomer();
+        Integer customerId = customer.getCustomerId();
+        index(byPlate, record.getVehicle().getPlate(), pos);
+        index(byCustomerId, customerId, pos);
+        index(byDate, record.getRecordDate(), pos);
+        customerSearchKeys.computeIfAbsent(customerId, id -> customer.toString().toLowerCase(Locale.ROOT));
+        String name = customer.getCustomerName();
+        if (name != null) {
+            for (String token : name.toLowerCase(Locale.ROOT).split("\\s+")) {
+                if (!token.isEmpty()) {
+                    index(byNameToken, token, pos);
+                }
+            }
+        }
     }
 
+    // read-only view; records appended later become visible through it
     public List<RentalRecord> getRentalHistory() {
         return rentalRecords;
     }
 
+    // up to pageSize records starting at insertion position sequence
+    public HistoryPage getPage(long sequence, int pageSize) {
+        List<RentalRecord> all = getRentalHistory();
+        int total = all.size();
+        int start = (int) Math.min(Math.max(sequence, 0), total);
+        int end = (int) Math.min((long) start + Math.max(pageSize, 0), total);
+        return new HistoryPage(new ArrayList<>(all.subList(start, end)), start, total);
+    }
+
+    // Where to start paging to see every record dated on or after date: the first
+    // position holding such a record, or the size of the history if there is none.
+    public long seek(LocalDate date) {
+        int first = rentalRecords.size();
+        for (IntList positions : byDate.tailMap(date, true).values()) {
+            synchronized (positions) {
+                first = Math.min(first, positions.get(0));
+            }
+        }
+        return first;
+    }
+
+    // lazy, in insertion order, over the records present when it is called
+    public Stream<RentalRecord> stream() {
+        return stream(0);
+    }
+
+    public Stream<RentalRecord> stream(long fromSequence) {
+        List<RentalRecord> all = getRentalHistory();
+        int end = all.size();
+        int start = (int) Math.min(Math.max(fromSequence, 0), end);
+        return IntStream.range(start, end).mapToObj(all::get);
+    }
+
+    // records dated from..to, by date then insertion order, fetched one day at a time
+    public Stream<RentalRecord> streamBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return Stream.empty();
+        }
+        List<LocalDate> dates = new ArrayList<>(byDate.subMap(from, true, to, true).keySet());
+        return dates.stream().flatMap(date -> getRentalRecordsOn(date).stream());
+    }
+
     public List<RentalRecord> getRentalRecordsByCustomer(String customerName) {
-        List<RentalRecord> result = new ArrayList<>();
-        for (RentalRecord record : rentalRecords) {
-            if (record.getCustomer().toString().toLowerCase().contains(customerName.toLowerCase())) {
-                result.add(record);
+        return findByCustomerName(customerName.toLowerCase(Locale.ROOT));
+    }
+
+    private List<RentalRecord> findByCustomerName(String query) {
+        // match against each distinct customer once instead of every record
+        List<IntList> matches = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : customerSearchKeys.entrySet()) {
+            IntList positions = byCustomerId.get(entry.getKey());
+            if (positions != null && entry.getValue().contains(query)) {
+                matches.add(positions);
             }
         }
-        return result;
+        if (matches.size() == 1) {
+            return collect(matches.get(0));
+        }
+        IntList merged = new IntList();
+        for (IntList positions : matches) {
+            synchronized (positions) {
+                merged.addAll(positions);
+            }
+        }
+        merged.sort();
+        return collect(merged);
+    }
+
+    public List<RentalRecord> getRentalRecordsByCustomerId(int customerId) {
+        return collect(byCustomerId.get(customerId));
+    }
+
+    // whole-word match on the customer name, e.g. "smith" for "John Smith"
+    public List<RentalRecord> getRentalRecordsByCustomerNameToken(String token) {
+        String key = token.trim().toLowerCase(Locale.ROOT);
+        return collect(byNameToken.get(key));
     }
 
     public List<RentalRecord> getRentalRecordsByVehicle(String licensePlate) {
+        long packed = LicensePlate.pack(licensePlate);
+        if (packed == LicensePlate.INVALID) {
+            return new ArrayList<>();
+        }
+        return collect(byPlate.get(LicensePlate.fromPacked(packed)));
+    }
+
+    public List<RentalRecord> getRentalRecordsOn(LocalDate date) {
+        return collect(byDate.get(date));
+    }
+
+    // inclusive on both ends, ordered by date then insertion order
+    public List<RentalRecord> getRentalRecordsBetween(LocalDate from, LocalDate to) {
         List<RentalRecord> result = new ArrayList<>();
-        for (RentalRecord record : rentalRecords) {
-            if (record.getVehicle().getLicensePlate().equalsIgnoreCase(licensePlate)) {
+        if (from.isAfter(to)) {
+            return result;
+        }
+        for (IntList positions : byDate.subMap(from, true, to, true).values()) {
+            collectInto(positions, result);
+        }
+        return result;
+    }
+
+    public List<RentalRecord> getRentalRecordsByVehicleBetween(String licensePlate, LocalDate from, LocalDate to) {
+        List<RentalRecord> result = new ArrayList<>();
+        for (RentalRecord record : getRentalRecordsByVehicle(licensePlate)) {
+            LocalDate date = record.getRecordDate();
+            if (!date.isBefore(from) && !date.isAfter(to)) {
                 result.add(record);
             }
         }
         return result;
     }
-}
\ No newline at end of file
+
+    public LocalDate getFirstRecordDate() {
+        Map.Entry<LocalDate, IntList> first = byDate.firstEntry();
+        return first == null ? null : first.getKey();
+    }
+
+    public LocalDate getLastRecordDate() {
+        Map.Entry<LocalDate, IntList> last = byDate.lastEntry();
+        return last == null ? null : last.getKey();
+    }
+
+    // appends racing on other stripes can hand a list its positions slightly out of order
+    private static <K> void index(Map<K, IntList> index, K key, int pos) {
+        IntList positions = index.computeIfAbsent(key, k -> new IntList());
+        synchronized (positions) {
+            positions.addSorted(pos);
+        }
+    }
+
+    private List<RentalRecord> collect(IntList positions) {
+        List<RentalRecord> result = new ArrayList<>();
+        collectInto(positions, result);
+        return result;
+    }
+
+    private void collectInto(IntList positions, List<RentalRecord> result) {
+        if (positions == null) {
+            return;
+        }
+        synchronized (positions) {
+            for (int i = 0; i < positions.size(); i++) {
+                result.add(rentalRecords.get(positions.get(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,506 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Embedded HTTP/JSON front end over the shared RentalSystem, for branch terminals.
+// Connections are multiplexed by the JDK server's selector thread; each request
+// runs on its own virtual thread where the JVM has them (Java 21+) and on a fixed
+// pool otherwise. Parameters come from the query string and/or a flat JSON (or
+// form-encoded) body:
+//
+//   POST /vehicles   type=CAR|SPORTCAR|MINIBUS|PICKUP, plate, make, model, year,
+//                    seats, horsepower, turbo, accessible, cargo, trailer
+//   GET  /vehicles   plate, or search criteria as in VehicleQuery (type, status,
+//                    minYear, maxYear, minSeats, maxSeats, minCargo, maxCargo,
+//                    accessible, trailer) and limit
+//   POST /customers  id, name
+//   POST /rent       plate, customerId, amount, date (default today)
+//   POST /return     plate, customerId, fees, date (default today)
+//   GET  /history    plate, customerId or from and to; limit
+//
+// In read-only mode (a replica) every POST is refused with 403.
+//
+// java RentalHttpServer [--port 8080]
+public class RentalHttpServer {
+
+    // -Drental.http.threads sizes the pool used where there are no virtual threads
+    private static final String THREADS_PROPERTY = "rental.http.threads";
+    // -Drental.http.backlog is how many connections may wait to be accepted
+    private static final String BACKLOG_PROPERTY = "rental.http.backlog";
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final RentalSystem rentalSystem;
+    private HttpServer server;
+    private ExecutorService executor;
+    // a replica only answers GETs until it takes over (see ReplicationFollower)
+    private volatile boolean readOnly;
+
+    // thrown by handlers for a 4xx reply
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Handler {
+        // returns the JSON body of a 200 reply
+        String handle(String method, Map<String, String> params) throws IOException;
+    }
+
+    public RentalHttpServer(RentalSystem rentalSystem) {
+        this.rentalSystem = rentalSystem;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--port".equals(args[i])) {
+                port = Integer.parseInt(args[i + 1]);
+            }
+        }
+        RentalSystem rentalSystem = RentalSystem.getInstance();
+        rentalSystem.loadData();
+        RentalHttpServer server = new RentalHttpServer(rentalSystem);
+        server.start(port);
+        System.out.println("Rental service listening on port " + server.getPort());
+    }
+
+    // port 0 picks a free port; see getPort()
+    public synchronized void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), Integer.getInteger(BACKLOG_PROPERTY, 10000));
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/vehicles", exchange -> serve(exchange, this::vehicles));
+        server.createContext("/customers", exchange -> serve(exchange, this::customers));
+        server.createContext("/rent", exchange -> serve(exchange, (method, params) -> rentOrReturn(method, params, true)));
+        server.createContext("/return", exchange -> serve(exchange, (method, params) -> rentOrReturn(method, params, false)));
+        server.createContext("/history", exchange -> serve(exchange, this::history));
+        server.start();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    public synchronized int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    // one virtual thread per request on Java 21+, looked up reflectively so this still builds on 17
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Integer.getInteger(THREADS_PROPERTY, 200);
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "rental-http");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void serve(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = handler.handle(exchange.getRequestMethod(), params(exchange));
+        } catch (HttpError e) {
+            status = e.status;
+            body = "{\"error\":" + quote(e.getMessage()) + "}";
+        } catch (NumberFormatException | DateTimeParseException e) {
+            status = 400;
+            body = "{\"error\":" + quote("Bad value: " + e.getMessage()) + "}";
+        } catch (RuntimeException e) {
+            status = 500;
+            body = "{\"error\":" + quote(String.valueOf(e)) + "}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String vehicles(String method, Map<String, String> params) {
+        if ("POST".equals(method)) {
+            requirePost(method);
+            Vehicle vehicle;
+            try {
+                // the constructors reject values such as a cargo size of 0
+                vehicle = newVehicle(params);
+                vehicle.setLicensePlate(required(params, "plate"));
+            } catch (NumberFormatException e) {
+                throw e; // a bad value, reported as such by serve()
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, e.getMessage());
+            }
+            if (!rentalSystem.addVehicle(vehicle)) {
+                throw new HttpError(409, "A vehicle with this license plate already exists.");
+            }
+            return vehicleJson(vehicle);
+        }
+        requireGet(method);
+        String plate = params.get("plate");
+        if (plate != null) {
+            Vehicle vehicle = rentalSystem.findVehicleByPlate(plate);
+            if (vehicle == null) {
+                throw new HttpError(404, "No vehicle with plate " + plate);
+            }
+            return vehicleJson(vehicle);
+        }
+        List<Vehicle> found = rentalSystem.searchVehicles(query(params));
+        StringBuilder sb = new StringBuilder("{\"count\":").append(found.size()).append(",\"vehicles\":[");
+        int limit = limit(params);
+        for (int i = 0; i < found.size() && i < limit; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(vehicleJson(found.get(i)));
+        }
+        return sb.append("]}").toString();
+    }
+
+    private String customers(String method, Map<String, String> params) {
+        if ("GET".equals(method)) {
+            Customer customer = customer(params, "id");
+            return customerJson(customer);
+        }
+        requirePost(method);
+        Customer customer = new Customer(Integer.parseInt(required(params, "id")), required(params, "name"));
+        if (!rentalSystem.addCustomer(customer)) {
+            throw new HttpError(409, "A customer with this ID already exists.");
+        }
+        return customerJson(customer);
+    }
+
+    private String rentOrReturn(String method, Map<String, String> params, boolean rent) {
+        requirePost(method);
+        String plate = required(params, "plate");
+        Vehicle vehicle = rentalSystem.findVehicleByPlate(plate);
+        if (vehicle == null) {
+            throw new HttpError(404, "No vehicle with plate " + plate);
+        }
+        Customer customer = customer(params, "customerId");
+        String date = params.get("date");
+        LocalDate day = date == null ? LocalDate.now() : LocalDate.parse(date);
+        if (rent) {
+            double amount = Double.parseDouble(params.getOrDefault("amount", "0"));
+            if (!rentalSystem.rentVehicle(vehicle, customer, day, amount)) {
+                throw new HttpError(409, "Vehicle is not available for renting.");
+            }
+        } else {
+            double fees = Double.parseDouble(params.getOrDefault("fees", "0"));
+            if (!rentalSystem.returnVehicle(vehicle, customer, day, fees)) {
+                throw new HttpError(409, "Vehicle is not rented.");
+            }
+        }
+        return vehicleJson(vehicle);
+    }
+
+    private String history(String method, Map<String, String> params) {
+        requireGet(method);
+        RentalHistory history = rentalSystem.getRentalHistory();
+        List<RentalRecord> records;
+        if (params.containsKey("plate")) {
+            records = history.getRentalRecordsByVehicle(params.get("plate"));
+        } else if (params.containsKey("customerId")) {
+            records = history.getRentalRecordsByCustomerId(Integer.parseInt(params.get("customerId")));
+        } else if (params.containsKey("from") && params.containsKey("to")) {
+            records = history.getRentalRecordsBetween(LocalDate.parse(params.get("from")), LocalDate.parse(params.get("to")));
+        } else {
+            throw new HttpError(400, "Give plate, customerId or from and to");
+        }
+        StringBuilder sb = new StringBuilder("{\"count\":").append(records.size()).append(",\"records\":[");
+        int limit = limit(params);
+        for (int i = 0; i < records.size() && i < limit; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(recordJson(records.get(i)));
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static Vehicle newVehicle(Map<String, String> params) {
+        VehicleType type = VehicleType.fromCode(required(params, "type").toUpperCase());
+        if (type == null) {
+            throw new HttpError(400, "Unknown vehicle type " + params.get("type"));
+        }
+        String make = required(params, "make");
+        String model = required(params, "model");
+        int year = Integer.parseInt(required(params, "year"));
+        switch (type) {
+            case CAR:
+                return new Car(make, model, year, Integer.parseInt(required(params, "seats")));
+            case SPORT_CAR:
+                return new SportCar(make, model, year, Integer.parseInt(required(params, "seats")),
+                        Integer.parseInt(required(params, "horsepower")), Boolean.parseBoolean(params.get("turbo")));
+            case MINIBUS:
+                return new Minibus(make, model, year, Boolean.parseBoolean(params.get("accessible")));
+            default:
+                return new PickupTruck(make, model, year, Double.parseDouble(required(params, "cargo")),
+                        Boolean.parseBoolean(params.get("trailer")));
+        }
+    }
+
+    private static VehicleQuery query(Map<String, String> params) {
+        VehicleQuery query = new VehicleQuery();
+        if (params.containsKey("type")) {
+            VehicleType type = VehicleType.fromCode(params.get("type").toUpperCase());
+            if (type == null) {
+                throw new HttpError(400, "Unknown vehicle type " + params.get("type"));
+            }
+            query.type(type);
+        }
+        if (params.containsKey("status")) {
+            try {
+                query.status(Vehicle.VehicleStatus.valueOf(params.get("status")));
+            } catch (IllegalArgumentException e) {
+                throw new HttpError(400, "Unknown status " + params.get("status"));
+            }
+        }
+        if (params.containsKey("accessible")) {
+            query.accessible(Boolean.parseBoolean(params.get("accessible")));
+        }
+        if (params.containsKey("trailer")) {
+            query.trailer(Boolean.parseBoolean(params.get("trailer")));
+        }
+        if (params.containsKey("minYear")) {
+            query.minYear(Integer.parseInt(params.get("minYear")));
+        }
+        if (params.containsKey("maxYear")) {
+            query.maxYear(Integer.parseInt(params.get("maxYear")));
+        }
+        if (params.containsKey("minSeats")) {
+            query.minSeats(Integer.parseInt(params.get("minSeats")));
+        }
+        if (params.containsKey("maxSeats")) {
+            query.maxSeats(Integer.parseInt(params.get("maxSeats")));
+        }
+        if (params.containsKey("minCargo")) {
+            query.minCargo(Double.parseDouble(params.get("minCargo")));
+        }
+        if (params.containsKey("maxCargo")) {
+            query.maxCargo(Double.parseDouble(params.get("maxCargo")));
+        }
+        return query;
+    }
+
+    private Customer customer(Map<String, String> params, String name) {
+        int id = Integer.parseInt(required(params, name));
+        Customer customer = rentalSystem.findCustomerById(id);
+        if (customer == null) {
+            throw new HttpError(404, "No customer with ID " + id);
+        }
+        return customer;
+    }
+
+    private static int limit(Map<String, String> params) {
+        return Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new HttpError(400, "Missing " + name);
+        }
+        return value;
+    }
+
+    private static void requireGet(String method) {
+        if (!"GET".equals(method)) {
+            throw new HttpError(405, "Use GET");
+        }
+    }
+
+    private void requirePost(String method) {
+        if (!"POST".equals(method)) {
+            throw new HttpError(405, "Use POST");
+        }
+        if (readOnly) {
+            throw new HttpError(403, "Read-only replica; send changes to the primary");
+        }
+    }
+
+    static String vehicleJson(Vehicle v) {
+        VehicleType type = VehicleType.of(v);
+        return "{\"plate\":" + quote(v.getLicensePlate()) +
+                ",\"type\":" + quote(type == null ? null : type.getCode()) +
+                ",\"make\":" + quote(v.getMake()) +
+                ",\"model\":" + quote(v.getModel()) +
+                ",\"year\":" + v.getYear() +
+                ",\"status\":" + quote(v.getStatus().name()) + "}";
+    }
+
+    static String customerJson(Customer c) {
+        return "{\"id\":" + c.getCustomerId() + ",\"name\":" + quote(c.getCustomerName()) + "}";
+    }
+
+    static String recordJson(RentalRecord r) {
+        return "{\"type\":" + quote(r.getRecordType()) +
+                ",\"plate\":" + quote(r.getVehicle().getLicensePlate()) +
+                ",\"customerId\":" + r.getCustomer().getCustomerId() +
+                ",\"customer\":" + quote(r.getCustomer().getCustomerName()) +
+                ",\"date\":" + quote(r.getRecordDate().toString()) +
+                ",\"amount\":" + r.getTotalAmount() + "}";
+    }
+
+    static String quote(String s) {
+        if (s == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // query string first, then the body (which wins on a clash)
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            parseForm(query, params);
+        }
+        String body = readBody(exchange.getRequestBody()).trim();
+        if (body.startsWith("{")) {
+            parseJsonObject(body, params);
+        } else if (!body.isEmpty()) {
+            parseForm(body, params);
+        }
+        return params;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        in.transferTo(bytes);
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    // {"name": "value", "n": 1, "b": true} - one level, no arrays; values kept as text
+    static void parseJsonObject(String json, Map<String, String> params) {
+        int[] pos = { skipSpace(json, 1) };
+        while (pos[0] < json.length() && json.charAt(pos[0]) != '}') {
+            if (json.charAt(pos[0]) != '"') {
+                throw new HttpError(400, "Bad JSON at " + pos[0]);
+            }
+            String name = readString(json, pos);
+            pos[0] = skipSpace(json, pos[0]);
+            if (pos[0] >= json.length() || json.charAt(pos[0]) != ':') {
+                throw new HttpError(400, "Bad JSON at " + pos[0]);
+            }
+            pos[0] = skipSpace(json, pos[0] + 1);
+            String value;
+            if (pos[0] < json.length() && json.charAt(pos[0]) == '"') {
+                value = readString(json, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = json.substring(start, pos[0]);
+                if ("null".equals(value)) {
+                    value = null;
+                }
+            }
+            if (value != null) {
+                params.put(name, value);
+            }
+            pos[0] = skipSpace(json, pos[0]);
+            if (pos[0] < json.length() && json.charAt(pos[0]) == ',') {
+                pos[0] = skipSpace(json, pos[0] + 1);
+            }
+        }
+    }
+
+    private static String readString(String json, int[] pos) {
+        StringBuilder sb = new StringBuilder();
+        int i = pos[0] + 1;
+        while (i < json.length() && json.charAt(i) != '"') {
+            char c = json.charAt(i++);
+            if (c == '\\' && i < json.length()) {
+                char e = json.charAt(i++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (i + 4 > json.length()) {
+                            throw new HttpError(400, "Bad escape in JSON");
+                        }
+                        sb.append((char) Integer.parseInt(json.substring(i, i + 4), 16));
+                        i += 4;
+                        break;
+                    default: sb.append(e);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        if (i >= json.length()) {
+            throw new HttpError(400, "Unterminated string in JSON");
+        }
+        pos[0] = i + 1;
+        return sb.toString();
+    }
+
+    private static int skipSpace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
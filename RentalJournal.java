@@ -0,0 +1,365 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Write-ahead journal of rent/return transactions and other status changes. Each
+// entry carries a sequence number and a CRC32; callers that commit concurrently
+// share one fsync (group commit). A STATUS entry keeps the new status's ordinal in
+// the customerId field.
+//
+// Entry layout: int length | long seq | byte type | int customerId | long epochDay |
+//               long amountBits | byte plateLength | plate bytes | int crc32
+public class RentalJournal {
+
+    public static final byte RENT = 1;
+    public static final byte RETURN = 2;
+    public static final byte STATUS = 3;
+
+    private static final int HEADER_BYTES = 4;
+    private static final int FIXED_BODY_BYTES = 8 + 1 + 4 + 8 + 8 + 1;
+    private static final int CRC_BYTES = 4;
+
+    public interface Replayer {
+        void apply(long seq, byte type, String plate, int customerId, LocalDate date, double amount);
+    }
+
+    private final Path path;
+    private FileChannel channel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(16 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(16 * 1024);
+    private final CRC32 crc = new CRC32();
+    private long nextSeq = 1;
+    private long durableSeq = 0;
+    private boolean flushing;
+    private long forces;
+    // set when a failed write could not be cut back off the file; every later sync fails
+    private IOException broken;
+
+    public RentalJournal(String path) {
+        this.path = Paths.get(path);
+    }
+
+    public long getDurableSequence() {
+        lock.lock();
+        try {
+            return durableSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return nextSeq - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads every intact entry in order. A torn or corrupt tail (a crash mid-write)
+    // ends the replay and is cut off so new entries follow the last good one.
+    public long replay(Replayer replayer) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long count = 0;
+        long lastSeq = 0;
+        long validEnd = 0;
+        byte[] body = new byte[FIXED_BODY_BYTES + 255 + CRC_BYTES];
+        CRC32 check = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                    if (length < FIXED_BODY_BYTES + CRC_BYTES || length > body.length) {
+                        break;
+                    }
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                ByteBuffer entry = ByteBuffer.wrap(body, 0, length);
+                check.reset();
+                check.update(body, 0, length - CRC_BYTES);
+                if ((int) check.getValue() != entry.getInt(length - CRC_BYTES)) {
+                    break;
+                }
+                long seq = entry.getLong();
+                byte type = entry.get();
+                int customerId = entry.getInt();
+                long epochDay = entry.getLong();
+                double amount = Double.longBitsToDouble(entry.getLong());
+                int plateLength = entry.get() & 0xFF;
+                String plate = new String(body, entry.position(), plateLength, StandardCharsets.US_ASCII);
+
+                replayer.apply(seq, type, plate, customerId, LocalDate.ofEpochDay(epochDay), amount);
+                lastSeq = seq;
+                validEnd += HEADER_BYTES + length;
+                count++;
+            }
+        }
+        long size = Files.size(path);
+        if (validEnd < size) {
+            System.out.println("Journal: discarding " + (size - validEnd) + " bytes of incomplete entries.");
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                out.truncate(validEnd);
+            }
+        }
+        lock.lock();
+        try {
+            nextSeq = Math.max(nextSeq, lastSeq + 1);
+            durableSeq = Math.max(durableSeq, lastSeq);
+        } finally {
+            lock.unlock();
+        }
+        return count;
+    }
+
+    // Buffers an entry and returns its sequence number; it is durable once awaitDurable(seq) returns.
+    public long append(byte type, String plate, int customerId, LocalDate date, double amount) {
+        byte[] plateBytes = plate.getBytes(StandardCharsets.US_ASCII);
+        int length = FIXED_BODY_BYTES + plateBytes.length + CRC_BYTES;
+        lock.lock();
+        try {
+            if (pending.remaining() < HEADER_BYTES + length) {
+                pending = grow(pending, HEADER_BYTES + length);
+            }
+            long seq = nextSeq++;
+            pending.putInt(length);
+            int start = pending.position();
+            pending.putLong(seq);
+            pending.put(type);
+            pending.putInt(customerId);
+            pending.putLong(date.toEpochDay());
+            pending.putLong(Double.doubleToLongBits(amount));
+            pending.put((byte) plateBytes.length);
+            pending.put(plateBytes);
+            crc.reset();
+            crc.update(pending.array(), start, pending.position() - start);
+            pending.putInt((int) crc.getValue());
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // fsyncs so far; each one covers every entry buffered when it started
+    public long getForceCount() {
+        lock.lock();
+        try {
+            return forces;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until seq is on disk. The first waiter writes and fsyncs everything
+    // buffered so far; the others wait for that flush instead of forcing their own.
+    // A failed batch is cut off the file again and retried by the next waiter.
+    public void awaitDurable(long seq) throws IOException {
+        lock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (broken != null) {
+                    throw new IOException("Journal unusable after a failed write", broken);
+                }
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                ByteBuffer batch = pending;
+                long batchEnd = nextSeq - 1;
+                pending = spare;
+                spare = null;
+                lock.unlock();
+                boolean ok = false;
+                try {
+                    batch.flip();
+                    writeAndForce(batch);
+                    ok = true;
+                } finally {
+                    lock.lock();
+                    if (ok) {
+                        forces++;
+                        durableSeq = batchEnd;
+                        batch.clear();
+                        spare = batch;
+                    } else {
+                        // keep the failed batch in front of anything appended meanwhile
+                        batch.position(0);
+                        ByteBuffer retry = ByteBuffer.allocate(batch.remaining() + pending.capacity());
+                        retry.put(batch);
+                        pending.flip();
+                        retry.put(pending);
+                        pending.clear();
+                        spare = pending;
+                        pending = retry;
+                    }
+                    flushing = false;
+                    flushed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sequence numbers continue after seq, e.g. one already covered by a snapshot.
+    public void setBaseSequence(long seq) {
+        lock.lock();
+        try {
+            nextSeq = Math.max(nextSeq, seq + 1);
+            durableSeq = Math.max(durableSeq, seq);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops the entries up to seq once a snapshot covers them; later ones stay and
+    // numbering carries on. Appends go on meanwhile; only flushes wait, while the
+    // entries after seq are copied into the replacement file.
+    public void truncate(long seq) throws IOException {
+        awaitDurable(seq);
+        long keepFrom = offsetAfter(seq);
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            flushing = true; // keeps every flush off the file while it is replaced
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (Files.exists(path)) {
+                Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+                try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                             StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long position = keepFrom;
+                    long size = in.size();
+                    while (position < size) {
+                        long copied = in.transferTo(position, size - position, out);
+                        if (copied <= 0) {
+                            break;
+                        }
+                        position += copied;
+                    }
+                    out.force(true);
+                }
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            lock.lock();
+            try {
+                flushing = false;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Byte offset of the first entry numbered after seq, or the end of the file. The
+    // entries up to seq are all on disk, so a half-written later one only ends the scan.
+    private long offsetAfter(long seq) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                long entrySeq;
+                try {
+                    length = in.readInt();
+                    entrySeq = in.readLong();
+                } catch (EOFException e) {
+                    return offset;
+                }
+                if (entrySeq > seq || length < FIXED_BODY_BYTES + CRC_BYTES) {
+                    return offset;
+                }
+                in.skipNBytes(length - 8);
+                offset += HEADER_BYTES + length;
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        awaitDurable(getLastSequence());
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only ever called by the single flushing thread. Part of the batch may have
+    // reached the file when a write or force fails, so the file is cut back to where
+    // the batch began; a retry then writes it whole, never a second copy of the start.
+    private void writeAndForce(ByteBuffer batch) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        long start = channel.size();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.force(false);
+            } catch (IOException truncateFailed) {
+                e.addSuppressed(truncateFailed);
+                lock.lock();
+                try {
+                    broken = e;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buf, int needed) {
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + needed));
+        buf.flip();
+        bigger.put(buf);
+        return bigger;
+    }
+}
@@ -1,58 +1,167 @@
 import java.util.List;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.time.format.DateTimeFormatter;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.File;
 import java.time.format.DateTimeParseException;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
 
 public class RentalSystem {
 	
-	private static RentalSystem instance;
+    // class-holder idiom: initialised once, safely published by class loading
+    private static class Holder {
+        static final RentalSystem INSTANCE = new RentalSystem();
+    }
 	
-    private List<Vehicle> vehicles;
-    private List<Customer> customers;
+    private VehicleRegistry vehicles;
+    private CustomerRegistry customers;
     private RentalHistory rentalHistory;
+    // rent/return lock only the stripe owning the vehicle, so different vehicles proceed in parallel
+    private final ReentrantLock[] vehicleLocks;
     
     private static final String VEHICLE_FILE = "vehicles.txt";
     private static final String CUSTOMER_FILE = "customers.txt";
     private static final String RECORD_FILE  = "records.txt";
+    private static final int LOCK_STRIPES = 256;
+    private static final int HISTORY_PAGE_SIZE = 100;
+    private static final int IMPORT_CHUNK = 10_000; // records saved per write by importBinary
+
+    // -Drental.durability=every-write|group-commit|on-shutdown; unset, it is group-commit
+    // while the journal is on (the journal already makes rents and returns durable)
+    // and every-write without it
+    private static final String DURABILITY_PROPERTY = "rental.durability";
+    private static final String GROUP_COMMIT_MS_PROPERTY = "rental.groupCommitMs";
+    private static final String GROUP_COMMIT_LINES_PROPERTY = "rental.groupCommitLines";
+
+    private final FileAppender vehicleOut;
+    private final FileAppender customerOut;
+    private final FileAppender recordOut;
+
+    // future bookings; reservations.txt logs each booking and cancellation
+    private static final String RESERVATION_FILE = "reservations.txt";
+    private final ReservationBook reservations = new ReservationBook();
+    private final FileAppender reservationOut;
+
+    // write-ahead journal of rent/return and status changes, replayed by loadData; -Drental.journal=false turns it off
+    private static final String JOURNAL_FILE = "rentals.journal";
+    private static final String JOURNAL_PROPERTY = "rental.journal";
+    private final RentalJournal journal;
+    // rents, returns and batches applied but still waiting on the journal before
+    // their records.txt lines are saved; compact() lets them finish first
+    private final AtomicInteger unsavedRecords = new AtomicInteger();
+
+    // -Drental.persistence=async applies changes in memory and hands the lines to a
+    // writer thread (see PersistenceQueue) instead of writing them in the caller;
+    // -Drental.async.capacity and -Drental.async.backpressure=block|spin tune the queue
+    private static final String PERSISTENCE_PROPERTY = "rental.persistence";
+    private static final String PERSISTENCE_ASYNC = "async";
+    private static final String ASYNC_CAPACITY_PROPERTY = "rental.async.capacity";
+    private static final String ASYNC_BACKPRESSURE_PROPERTY = "rental.async.backpressure";
+    private final PersistenceQueue writeQueue;
+
+    // compacted state; -Drental.snapshotIntervalMs=N also snapshots every N ms after loadData
+    private static final String SNAPSHOT_FILE = "rental.snapshot";
+    private static final String SNAPSHOT_INTERVAL_PROPERTY = "rental.snapshotIntervalMs";
+    private final SnapshotStore snapshots = new SnapshotStore(SNAPSHOT_FILE);
+    private int snapshotGeneration;
+    private long snapshotJournalSeq;
+    // journal entries after the snapshot whose records.txt line loadRecords found,
+    // by seq - snapshotJournalSeq - 1; replayJournal restores only the others
+    private BitSet savedSequences = new BitSet();
+    private ScheduledExecutorService snapshotTimer;
+
+    // -Drental.loader=mmap parses records.txt from a memory-mapped file instead of a BufferedReader;
+    // -Drental.loader=parallel also loads vehicles/customers concurrently and records.txt in chunks
+    private static final String LOADER_PROPERTY = "rental.loader";
+    private static final String LOADER_MAPPED = "mmap";
+    private static final String LOADER_PARALLEL = "parallel";
+    private volatile boolean loaded;
+
+    // -Drental.history=columnar keeps the history in primitive columns (see ColumnarRentalHistory)
+    private static final String HISTORY_PROPERTY = "rental.history";
+    private static final String HISTORY_COLUMNAR = "columnar";
+
+    // changes made through this class (not by loadData), see RentalEventBus
+    private final RentalEventBus events = new RentalEventBus();
 	
 	private RentalSystem() 
 	{
-		vehicles = new ArrayList<>();
-		customers = new ArrayList<>();
-		rentalHistory = new RentalHistory();
+		vehicles = new VehicleRegistry();
+		customers = new CustomerRegistry();
+		rentalHistory = HISTORY_COLUMNAR.equals(System.getProperty(HISTORY_PROPERTY))
+				? new ColumnarRentalHistory() : new RentalHistory();
+		vehicleLocks = new ReentrantLock[LOCK_STRIPES];
+		for (int i = 0; i < vehicleLocks.length; i++) {
+			vehicleLocks[i] = new ReentrantLock();
+		}
+
+		journal = Boolean.parseBoolean(System.getProperty(JOURNAL_PROPERTY, "true"))
+				? new RentalJournal(JOURNAL_FILE) : null;
+		boolean async = PERSISTENCE_ASYNC.equals(System.getProperty(PERSISTENCE_PROPERTY));
+		String mode = System.getProperty(DURABILITY_PROPERTY);
+		// in async mode the writer thread decides when the files are flushed
+		FileAppender.Durability durability = async ? FileAppender.Durability.ON_SHUTDOWN
+				: mode == null && journal != null ? FileAppender.Durability.GROUP_COMMIT
+				: FileAppender.Durability.parse(mode);
+		long groupCommitMs = Long.getLong(GROUP_COMMIT_MS_PROPERTY, 10);
+		int groupCommitLines = Integer.getInteger(GROUP_COMMIT_LINES_PROPERTY, 256);
+		vehicleOut = new FileAppender(VEHICLE_FILE, durability, groupCommitMs, groupCommitLines);
+		customerOut = new FileAppender(CUSTOMER_FILE, durability, groupCommitMs, groupCommitLines);
+		recordOut = new FileAppender(RECORD_FILE, durability, groupCommitMs, groupCommitLines);
+		reservationOut = new FileAppender(RESERVATION_FILE, durability, groupCommitMs, groupCommitLines);
+		writeQueue = async ? new PersistenceQueue(Integer.getInteger(ASYNC_CAPACITY_PROPERTY, 8192),
+				PersistenceQueue.BackPressure.parse(System.getProperty(ASYNC_BACKPRESSURE_PROPERTY)), journal)
+				: null;
+		Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "rental-shutdown"));
 	}
 
     public static RentalSystem getInstance()
     {
-    	if(instance == null)
-    	{
-    		instance = new RentalSystem();
-    	}
-    	return instance;
+    	return Holder.INSTANCE;
+    }
+
+    public RentalEventBus getEvents() {
+        return events;
     }
     
     public boolean addVehicle(Vehicle vehicle) {
-        if (vehicle == null) {
+        if (vehicle == null || vehicle.getLicensePlate() == null) {
             return false;
         }
-        // duplicate license plate check
-        for (Vehicle v : vehicles) {
-            if (v.getLicensePlate().equalsIgnoreCase(vehicle.getLicensePlate())) {
+        ReentrantLock lock = lockFor(vehicle);
+        lock.lock();
+        try {
+            // duplicate license plate check
+            if (!vehicles.add(vehicle)) {
                 System.out.println("A vehicle with this license plate already exists.");
                 return false;
             }
+            saveVehicle(vehicle);
+            if (events.hasSubscribers()) {
+                events.publish(RentalEvent.vehicleAdded(vehicle));
+            }
+        } finally {
+            lock.unlock();
         }
-        vehicles.add(vehicle);
-        saveVehicle(vehicle);           
         return true;
     }
 
@@ -60,26 +169,56 @@ public class RentalSystem {
         if (customer == null) {
             return false;
         }
-        // duplicate customer ID check
-        for (Customer c : customers) {
-            if (c.getCustomerId() == customer.getCustomerId()) {
+        ReentrantLock lock = lockFor(customer);
+        lock.lock();
+        try {
+            // duplicate customer ID check
+            if (!customers.add(customer)) {
                 System.out.println("A customer with this ID already exists.");
                 return false;
             }
+            saveCustomer(customer);
+            if (events.hasSubscribers()) {
+                events.publish(RentalEvent.customerAdded(customer));
+            }
+        } finally {
+            lock.unlock();
         }
-        customers.add(customer);
-        saveCustomer(customer);
         return true;
     }
 
     public boolean rentVehicle(Vehicle vehicle, Customer customer,
                                LocalDate date, double amount) {
-        if (vehicle.getStatus() == Vehicle.VehicleStatus.Available) {
-            vehicle.setStatus(Vehicle.VehicleStatus.Rented);
-            RentalRecord record =
-                    new RentalRecord(vehicle, customer, date, amount, "RENT");
-            rentalHistory.addRecord(record);
-            saveRecord(record);
+        ReentrantLock lock = lockFor(vehicle);
+        RentalRecord record = null;
+        long seq = 0;
+        lock.lock();
+        try {
+            // a booking for the day only lets its own customer take the vehicle
+            Reservation booked = reservations.find(vehicle, date);
+            if (vehicle.getStatus() == Vehicle.VehicleStatus.Available
+                    && (booked == null || booked.getCustomer().getCustomerId() == customer.getCustomerId())) {
+                seq = logTransaction(RentalJournal.RENT, vehicle, customer, date, amount);
+                vehicle.setStatus(Vehicle.VehicleStatus.Rented);
+                record = new RentalRecord(vehicle, customer, date, amount, "RENT");
+                rentalHistory.addRecord(record);
+                unsavedRecords.incrementAndGet();
+                if (events.hasSubscribers()) {
+                    events.publish(RentalEvent.recorded(record));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (record != null) {
+            try {
+                if (!awaitJournal(seq)) {
+                    return false;
+                }
+                saveRecord(record, seq);
+            } finally {
+                unsavedRecords.decrementAndGet();
+            }
             System.out.println("Vehicle rented to " + customer.getCustomerName());
             return true;
         }
@@ -89,18 +228,300 @@ public class RentalSystem {
 
     public boolean returnVehicle(Vehicle vehicle, Customer customer,
                                  LocalDate date, double extraFees) {
-        if (vehicle.getStatus() == Vehicle.VehicleStatus.Rented) {
-            vehicle.setStatus(Vehicle.VehicleStatus.Available);
-            RentalRecord record =
-                    new RentalRecord(vehicle, customer, date, extraFees, "RETURN");
-            rentalHistory.addRecord(record);
-            saveRecord(record);
+        ReentrantLock lock = lockFor(vehicle);
+        RentalRecord record = null;
+        long seq = 0;
+        lock.lock();
+        try {
+            if (vehicle.getStatus() == Vehicle.VehicleStatus.Rented) {
+                seq = logTransaction(RentalJournal.RETURN, vehicle, customer, date, extraFees);
+                vehicle.setStatus(Vehicle.VehicleStatus.Available);
+                record = new RentalRecord(vehicle, customer, date, extraFees, "RETURN");
+                rentalHistory.addRecord(record);
+                unsavedRecords.incrementAndGet();
+                if (events.hasSubscribers()) {
+                    events.publish(RentalEvent.recorded(record));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (record != null) {
+            try {
+                if (!awaitJournal(seq)) {
+                    return false;
+                }
+                saveRecord(record, seq);
+            } finally {
+                unsavedRecords.decrementAndGet();
+            }
             System.out.println("Vehicle returned by " + customer.getCustomerName());
             return true;
         }
         System.out.println("Vehicle is not rented.");
         return false;
-    }   
+    }
+
+    // Maintenance, holds and retirement; renting and returning go through
+    // rentVehicle/returnVehicle, so Rented can be neither the old nor the new status.
+    public boolean setVehicleStatus(Vehicle vehicle, Vehicle.VehicleStatus status) {
+        if (status == Vehicle.VehicleStatus.Rented) {
+            System.out.println("Use rentVehicle to rent a vehicle.");
+            return false;
+        }
+        ReentrantLock lock = lockFor(vehicle);
+        long seq = 0;
+        lock.lock();
+        try {
+            Vehicle.VehicleStatus previous = vehicle.getStatus();
+            if (previous == Vehicle.VehicleStatus.Rented) {
+                System.out.println("Vehicle is rented; return it first.");
+                return false;
+            }
+            if (previous != status) {
+                // vehicles.txt keeps the status at creation, so the journal carries the change
+                if (journal != null) {
+                    seq = journal.append(RentalJournal.STATUS,
+                            vehicle.getLicensePlate(), status.ordinal(), LocalDate.now(), 0);
+                }
+                vehicle.setStatus(status);
+                if (events.hasSubscribers()) {
+                    events.publish(RentalEvent.statusChanged(vehicle, previous, status));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return awaitJournal(seq);
+    }
+
+    // Checks every command against the state the earlier commands leave behind, then
+    // applies them (all or none, or only the valid ones) with every vehicle's lock
+    // held, so no other rent/return can interleave. Once the locks are released the
+    // whole batch is synced to the journal once and its records are saved in one write.
+    public RentalBatch.Result applyBatch(RentalBatch batch, RentalBatch.Mode mode) {
+        List<RentalBatch.Command> commands = batch.commands;
+        RentalBatch.Outcome[] outcomes = new RentalBatch.Outcome[commands.size()];
+        int applied = 0;
+        long last = 0;
+        List<String> lines = new ArrayList<>();
+        // stripes are taken in index order, as compact() does, so batches cannot deadlock
+        boolean[] stripes = new boolean[LOCK_STRIPES];
+        for (RentalBatch.Command c : commands) {
+            if (c.vehicle != null) {
+                stripes[stripeFor(c.vehicle)] = true;
+            }
+        }
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            if (stripes[i]) {
+                vehicleLocks[i].lock();
+            }
+        }
+        try {
+            Map<Vehicle, Vehicle.VehicleStatus> statuses = new IdentityHashMap<>();
+            boolean allValid = true;
+            for (int i = 0; i < commands.size(); i++) {
+                outcomes[i] = check(commands.get(i), statuses);
+                allValid &= outcomes[i] == RentalBatch.Outcome.APPLIED;
+            }
+            if (!allValid && mode == RentalBatch.Mode.ALL_OR_NOTHING) {
+                for (int i = 0; i < outcomes.length; i++) {
+                    if (outcomes[i] == RentalBatch.Outcome.APPLIED) {
+                        outcomes[i] = RentalBatch.Outcome.SKIPPED;
+                    }
+                }
+            } else {
+                for (int i = 0; i < commands.size(); i++) {
+                    if (outcomes[i] != RentalBatch.Outcome.APPLIED) {
+                        continue;
+                    }
+                    RentalBatch.Command c = commands.get(i);
+                    long seq = logTransaction(c.rent ? RentalJournal.RENT : RentalJournal.RETURN,
+                            c.vehicle, c.customer, c.date, c.amount);
+                    last = Math.max(last, seq);
+                    c.vehicle.setStatus(c.rent ? Vehicle.VehicleStatus.Rented : Vehicle.VehicleStatus.Available);
+                    RentalRecord record = new RentalRecord(c.vehicle, c.customer, c.date, c.amount,
+                            c.rent ? "RENT" : "RETURN");
+                    rentalHistory.addRecord(record);
+                    lines.add(formatRecord(record, seq));
+                    if (applied++ == 0) {
+                        unsavedRecords.incrementAndGet();
+                    }
+                    if (events.hasSubscribers()) {
+                        events.publish(RentalEvent.recorded(record));
+                    }
+                }
+            }
+        } finally {
+            for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                if (stripes[i]) {
+                    vehicleLocks[i].unlock();
+                }
+            }
+        }
+        if (applied > 0) {
+            try {
+                if (!awaitJournal(last)) {
+                    System.out.println("Batch: " + applied + " commands applied but not yet durable.");
+                    return new RentalBatch.Result(outcomes, applied);
+                }
+                writeAll(recordOut, lines);
+            } catch (IOException e) {
+                System.out.println("Error saving records: " + e.getMessage());
+            } finally {
+                unsavedRecords.decrementAndGet();
+            }
+        }
+        System.out.println("Batch: " + applied + " of " + commands.size() + " commands applied.");
+        return new RentalBatch.Result(outcomes, applied);
+    }
+
+    // statuses holds what earlier commands in the batch changed; updated when c is valid
+    private RentalBatch.Outcome check(RentalBatch.Command c, Map<Vehicle, Vehicle.VehicleStatus> statuses) {
+        if (c.vehicle == null || c.customer == null || c.date == null) {
+            return RentalBatch.Outcome.INVALID;
+        }
+        Vehicle.VehicleStatus status = statuses.getOrDefault(c.vehicle, c.vehicle.getStatus());
+        if (c.rent) {
+            if (status != Vehicle.VehicleStatus.Available) {
+                return RentalBatch.Outcome.NOT_AVAILABLE;
+            }
+            Reservation booked = reservations.find(c.vehicle, c.date);
+            if (booked != null && booked.getCustomer().getCustomerId() != c.customer.getCustomerId()) {
+                return RentalBatch.Outcome.RESERVED;
+            }
+            statuses.put(c.vehicle, Vehicle.VehicleStatus.Rented);
+        } else {
+            if (status != Vehicle.VehicleStatus.Rented) {
+                return RentalBatch.Outcome.NOT_RENTED;
+            }
+            statuses.put(c.vehicle, Vehicle.VehicleStatus.Available);
+        }
+        return RentalBatch.Outcome.APPLIED;
+    }
+
+    // Books the vehicle for start..end (inclusive). Returns null if any of those days
+    // is already booked or the vehicle is out of service.
+    public Reservation reserveVehicle(Vehicle vehicle, Customer customer, LocalDate start, LocalDate end) {
+        ReentrantLock lock = lockFor(vehicle);
+        Reservation reservation;
+        lock.lock();
+        try {
+            if (vehicle.getStatus() == Vehicle.VehicleStatus.OutOfService) {
+                System.out.println("Vehicle is out of service.");
+                return null;
+            }
+            reservation = reservations.reserve(vehicle, customer, start, end);
+            if (reservation == null) {
+                System.out.println("Vehicle is already reserved for those dates.");
+                return null;
+            }
+            saveReservation(CsvFormat.formatReservation(reservation));
+            if (events.hasSubscribers()) {
+                events.publish(RentalEvent.reserved(reservation));
+            }
+        } finally {
+            lock.unlock();
+        }
+        System.out.println("Vehicle reserved for " + customer.getCustomerName() + " from " + start + " to " + end);
+        return reservation;
+    }
+
+    public boolean cancelReservation(Reservation reservation) {
+        ReentrantLock lock = lockFor(reservation.getVehicle());
+        lock.lock();
+        try {
+            if (!reservations.cancel(reservation)) {
+                System.out.println("Reservation not found.");
+                return false;
+            }
+            saveReservation(CsvFormat.formatCancellation(reservation));
+            if (events.hasSubscribers()) {
+                events.publish(RentalEvent.cancelled(reservation));
+            }
+        } finally {
+            lock.unlock();
+        }
+        System.out.println("Reservation " + reservation.getId() + " cancelled.");
+        return true;
+    }
+
+    // A booking or cancellation made elsewhere (a replica following its primary), as a
+    // reservations.txt line. It keeps its id and is saved and published like a local one.
+    boolean restoreReservation(String line) {
+        Reservation reservation = applyReservationLine(line);
+        if (reservation == null) {
+            return false;
+        }
+        saveReservation(line);
+        if (events.hasSubscribers()) {
+            events.publish(line.startsWith("CANCEL,")
+                    ? RentalEvent.cancelled(reservation) : RentalEvent.reserved(reservation));
+        }
+        return true;
+    }
+
+    // every current reservation, by id
+    public List<Reservation> getAllReservations() {
+        return reservations.getAll();
+    }
+
+    public List<Reservation> getReservations(Vehicle vehicle) {
+        return reservations.getReservations(vehicle);
+    }
+
+    // vehicles with no booking on any day of from..to, in the order they were added
+    public List<Vehicle> findFreeVehicles(LocalDate from, LocalDate to) {
+        return findFreeVehicles(from, to, null);
+    }
+
+    // as above, only of the given type (null for any)
+    public List<Vehicle> findFreeVehicles(LocalDate from, LocalDate to, VehicleType type) {
+        List<Vehicle> candidates = type == null
+                ? vehicles.asList() : vehicles.getSearch().search(new VehicleQuery().type(type));
+        List<Vehicle> free = reservations.findFree(candidates, from, to);
+        free.removeIf(v -> v.getStatus() == Vehicle.VehicleStatus.OutOfService);
+        return free;
+    }
+
+    // Journals the transition before it is applied (called under the vehicle's lock,
+    // so journal order matches per-vehicle order). Returns 0 when journaling is off.
+    private long logTransaction(byte type, Vehicle vehicle, Customer customer, LocalDate date, double amount) {
+        if (journal == null) {
+            return 0;
+        }
+        String plate = vehicle.getLicensePlate() == null ? "" : vehicle.getLicensePlate();
+        return journal.append(type, plate, customer.getCustomerId(), date, amount);
+    }
+
+    // Called after the vehicle's lock is released: the change is already applied and
+    // published, and other transactions, on any stripe, can join the same fsync while
+    // this one waits. The records.txt line is saved only after this returns, so
+    // records.txt never gets ahead of the journal. In async mode the writer thread
+    // syncs the journal before it writes the files instead (see PersistenceQueue).
+    // False if the sync failed; the change then stays applied in memory, its entry
+    // stays queued for the next sync, and replayJournal restores the line on restart.
+    private boolean awaitJournal(long seq) {
+        if (journal == null || seq == 0 || writeQueue != null) {
+            return true;
+        }
+        try {
+            journal.awaitDurable(seq);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error writing journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private ReentrantLock lockFor(Object owner) {
+        return vehicleLocks[stripeFor(owner)];
+    }
+
+    private static int stripeFor(Object owner) {
+        int h = System.identityHashCode(owner);
+        return (h ^ (h >>> 16)) & (LOCK_STRIPES - 1);
+    }
 
     public void displayVehicles(Vehicle.VehicleStatus status) {
         // Display appropriate title based on status
@@ -116,7 +537,9 @@ public class RentalSystem {
         System.out.println("|--------------------------------------------------------------------------------------------|");
     	  
         boolean found = false;
-        for (Vehicle vehicle : vehicles) {
+        // a single status is read from the availability index instead of scanning the fleet
+        Iterable<Vehicle> shown = status == null ? vehicles.asList() : vehicles.getAvailability().vehicles(status);
+        for (Vehicle vehicle : shown) {
             if (status == null || vehicle.getStatus() == status) {
                 found = true;
                 String vehicleType;
@@ -144,13 +567,19 @@ public class RentalSystem {
     }
 
     public void displayAllCustomers() {
-        for (Customer c : customers) {
+        for (Customer c : customers.asList()) {
             System.out.println("  " + c.toString());
         }
     }
     
+    // the first page; displayRentalHistory(sequence, pageSize) shows any other
     public void displayRentalHistory() {
-        if (rentalHistory.getRentalHistory().isEmpty()) {
+        displayRentalHistory(0, HISTORY_PAGE_SIZE);
+    }
+
+    public void displayRentalHistory(long fromSequence, int pageSize) {
+        HistoryPage page = rentalHistory.getPage(fromSequence, pageSize);
+        if (page.getTotal() == 0) {
             System.out.println("  No rental history found.");
         } else {
             // Header with proper column widths
@@ -158,95 +587,389 @@ public class RentalSystem {
                 " Type", "Plate", "Customer", "Date", "Amount");
             System.out.println("|-------------------------------------------------------------------------------|");
             
-            for (RentalRecord record : rentalHistory.getRentalHistory()) {                
-                System.out.printf("| %-9s | %-12s | %-20s | %-12s | $%-11.2f |%n", 
-                    record.getRecordType(), 
-                    record.getVehicle().getLicensePlate(),
-                    record.getCustomer().getCustomerName(),
-                    record.getRecordDate().toString(),
-                    record.getTotalAmount()
-                );
+            // rows are padded by hand and printed once per page rather than printf'd one by one
+            StringBuilder rows = new StringBuilder();
+            for (RentalRecord record : page.getRecords()) {
+                rows.append("| ");
+                pad(rows, record.getRecordType(), 9).append(" | ");
+                pad(rows, record.getVehicle().getLicensePlate(), 12).append(" | ");
+                pad(rows, record.getCustomer().getCustomerName(), 20).append(" | ");
+                pad(rows, record.getRecordDate().toString(), 12).append(" | $");
+                pad(rows, formatAmount(record.getTotalAmount()), 11).append(" |").append(System.lineSeparator());
+            }
+            System.out.print(rows);
+            if (page.getFirstSequence() > 0 || page.hasMore()) {
+                System.out.println("  Records " + (page.getFirstSequence() + 1) + "-" + page.getNextSequence()
+                        + " of " + page.getTotal());
             }
             System.out.println();
         }
     }
+
+    // left-aligned in width, like %-Ns
+    private static StringBuilder pad(StringBuilder sb, String s, int width) {
+        String text = String.valueOf(s);
+        sb.append(text);
+        for (int i = text.length(); i < width; i++) {
+            sb.append(' ');
+        }
+        return sb;
+    }
+
+    // two decimals, like %.2f
+    private static String formatAmount(double amount) {
+        long cents = Math.round(amount * 100);
+        String sign = cents < 0 ? "-" : "";
+        cents = Math.abs(cents);
+        long fraction = cents % 100;
+        return sign + (cents / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    // Records of a CSV history file such as records.txt or an archive from compact(),
+    // read lazily, so files larger than the heap can be processed. Lines naming an
+    // unknown vehicle or customer are skipped, as on load. Close the stream when done.
+    public Stream<RentalRecord> streamRecordFile(Path file) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file);
+        return reader.lines()
+                .map(line -> CsvFormat.parseRecord(line, this::findVehicleByPlate, this::findCustomerById))
+                .filter(record -> record != null)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
     
     public Vehicle findVehicleByPlate(String plate) {
-        for (Vehicle v : vehicles) {
-            if (v.getLicensePlate().equalsIgnoreCase(plate)) {
-                return v;
-            }
-        }
-        return null;
+        return vehicles.find(plate);
     }
     
     public Customer findCustomerById(int id) {
-        for (Customer c : customers)
-            if (c.getCustomerId() == id)
-                return c;
-        return null;
+        return customers.find(id);
     }
     
     private void saveVehicle(Vehicle vehicle) {
-    	try (PrintWriter out = new PrintWriter(new FileWriter(VEHICLE_FILE, true))) {
-            String type;
-            String extra;
-
-            if (vehicle instanceof Car) {
-                type = "CAR";
-                extra = String.valueOf(((Car) vehicle).getNumSeats());
-            } else if (vehicle instanceof Minibus) {
-                type = "MINIBUS";
-                extra = String.valueOf(((Minibus) vehicle).getInfo());
-            } else if (vehicle instanceof PickupTruck) {
-                type = "PICKUP";
-                extra = ((PickupTruck) vehicle).getCargoSize() + ";" +
-                        ((PickupTruck) vehicle).hasTrailer();
-            } else {
-                type = "UNKNOWN";
-                extra = "";
-            }
-
-            out.println(
-                    type + "," +
-                    vehicle.getLicensePlate() + "," +
-                    vehicle.getMake() + "," +
-                    vehicle.getModel() + "," +
-                    vehicle.getYear() + "," +
-                    extra + "," +
-                    vehicle.getStatus()
-            );
+    	try {
+            write(vehicleOut, CsvFormat.formatVehicle(vehicle));
         } catch (IOException e) {
             System.out.println("Error saving vehicle: " + e.getMessage());
         }
     }
     
     private void saveCustomer(Customer customer) {
-        try (PrintWriter out = new PrintWriter(new FileWriter(CUSTOMER_FILE, true))) {
-            out.println(customer.getCustomerId() + "," + customer.getCustomerName());
+        try {
+            write(customerOut, CsvFormat.formatCustomer(customer));
         } catch (IOException e) {
             System.out.println("Error saving customer: " + e.getMessage());
         }
     }
 
-    private void saveRecord(RentalRecord record) {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RECORD_FILE, true))) {
-            out.println(
-                    record.getRecordType() + "," +
-                    record.getVehicle().getLicensePlate() + "," +
-                    record.getCustomer().getCustomerId() + "," +
-                    record.getRecordDate().toString() + "," +
-                    record.getTotalAmount()
-            );
+    private void saveRecord(RentalRecord record, long journalSeq) {
+        try {
+            write(recordOut, formatRecord(record, journalSeq));
         } catch (IOException e) {
             System.out.println("Error saving record: " + e.getMessage());
         }
     }
     
+    // records.txt lines name their journal entry, if there is one
+    private static String formatRecord(RentalRecord record, long journalSeq) {
+        return journalSeq == 0 ? CsvFormat.formatRecord(record) : CsvFormat.formatRecord(record, journalSeq);
+    }
+
+    private void saveReservation(String line) {
+        try {
+            write(reservationOut, line);
+        } catch (IOException e) {
+            System.out.println("Error saving reservation: " + e.getMessage());
+        }
+    }
+    
+    private void write(FileAppender out, String line) throws IOException {
+        if (writeQueue != null) {
+            writeQueue.submit(out, line);
+        } else {
+            out.append(line);
+        }
+    }
+
+    private void writeAll(FileAppender out, List<String> lines) throws IOException {
+        if (writeQueue != null) {
+            for (String line : lines) {
+                writeQueue.submit(out, line);
+            }
+        } else {
+            out.appendAll(lines);
+        }
+    }
+
+    // Returns once everything saved so far is in the files and the journal is synced.
+    public void flush() {
+        if (writeQueue != null) {
+            writeQueue.flush();
+            return;
+        }
+        for (FileAppender out : new FileAppender[] { vehicleOut, customerOut, recordOut, reservationOut }) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                System.out.println("Error writing " + out.getPath() + ": " + e.getMessage());
+            }
+        }
+        if (journal != null) {
+            awaitJournal(journal.getLastSequence());
+        }
+    }
+
+    // the write-ahead journal, for its sync metrics; null with -Drental.journal=false
+    public RentalJournal getJournal() {
+        return journal;
+    }
+
+    // the async writer, for awaitDurable(seq) and queue metrics; null unless
+    // -Drental.persistence=async
+    public PersistenceQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    // writes out anything still buffered and releases the data files
+    public void shutdown() {
+        if (writeQueue != null) {
+            writeQueue.flush();
+        }
+        for (FileAppender out : new FileAppender[] { vehicleOut, customerOut, recordOut, reservationOut }) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.out.println("Error closing " + out.getPath() + ": " + e.getMessage());
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("Error closing journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // Writes a snapshot of all vehicles (with current status) and customers, then
+    // drops what it covers from vehicles.txt/customers.txt and the journal and moves
+    // the records so far to records-<generation>.txt. The next loadData starts from
+    // the snapshot and only replays what was appended after it.
+    public synchronized boolean compact() {
+        if (!loaded) {
+            System.out.println("Load data before compacting.");
+            return false;
+        }
+        Vehicle.VehicleStatus[] statuses;
+        int customerCount;
+        long journalSeq;
+        long vehicleMark;
+        long customerMark;
+        long recordMark;
+        // every stripe is held only while the state is captured, nothing is written then
+        for (ReentrantLock lock : vehicleLocks) {
+            lock.lock();
+        }
+        try {
+            // lines of transactions already applied must land before the records mark
+            while (unsavedRecords.get() > 0) {
+                Thread.onSpinWait();
+            }
+            List<Vehicle> all = vehicles.asList();
+            statuses = new Vehicle.VehicleStatus[all.size()];
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = all.get(i).getStatus();
+            }
+            customerCount = customers.asList().size();
+            journalSeq = journal == null ? 0 : journal.getLastSequence();
+            vehicleMark = vehicleOut.position();
+            customerMark = customerOut.position();
+            recordMark = recordOut.position();
+        } catch (IOException e) {
+            System.out.println("Error writing snapshot: " + e.getMessage());
+            return false;
+        } finally {
+            for (ReentrantLock lock : vehicleLocks) {
+                lock.unlock();
+            }
+        }
+
+        try {
+            int generation = snapshotGeneration + 1;
+            snapshots.write(generation, journalSeq, vehicles.asList(), statuses,
+                    customers.asList(), customerCount);
+            snapshotGeneration = generation;
+            snapshotJournalSeq = journalSeq;
+            // lines before the marks are covered by the snapshot (or archived); later ones stay
+            vehicleOut.dropHead(vehicleMark, null);
+            customerOut.dropHead(customerMark, null);
+            recordOut.dropHead(recordMark, Paths.get(archiveName(generation)));
+            if (journal != null) {
+                journal.truncate(journalSeq);
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error writing snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Runs action with every stripe held, so no add, rent, return or status change is
+    // half done and none starts until it returns. ReplicationPrimary uses it to take
+    // a snapshot and subscribe to the changes after it in one step.
+    void whileQuiet(Runnable action) {
+        for (ReentrantLock lock : vehicleLocks) {
+            lock.lock();
+        }
+        try {
+            action.run();
+        } finally {
+            for (ReentrantLock lock : vehicleLocks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    // true if the working directory already has vehicles, customers or records saved
+    static boolean hasSavedData() {
+        for (String file : new String[] { VEHICLE_FILE, CUSTOMER_FILE, RECORD_FILE, SNAPSHOT_FILE }) {
+            if (new File(file).length() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Records that happened elsewhere (a replica catching up with its primary): added
+    // to the history and records.txt in one write, without changing any status or
+    // publishing events. The vehicles already carry the status the records led to.
+    void restoreRecords(List<RentalRecord> records) {
+        List<String> lines = new ArrayList<>(records.size());
+        for (RentalRecord record : records) {
+            rentalHistory.addRecord(record);
+            lines.add(CsvFormat.formatRecord(record));
+        }
+        try {
+            writeAll(recordOut, lines);
+        } catch (IOException e) {
+            System.out.println("Error saving records: " + e.getMessage());
+        }
+    }
+
+    // records that were compacted out of records.txt
+    public static String archiveName(int generation) {
+        return "records-" + generation + ".txt";
+    }
+
     public void loadData() {
-        loadVehicles();
-        loadCustomers();
+        // make sure the files on disk include anything appended before this call
+        shutdown();
+        loadSnapshot();
+        if (LOADER_PARALLEL.equals(System.getProperty(LOADER_PROPERTY))) {
+            // the registries are thread-safe, so both files can load at once
+            CompletableFuture<Void> vehicleLoad = CompletableFuture.runAsync(this::loadVehicles, ForkJoinPool.commonPool());
+            loadCustomers();
+            vehicleLoad.join();
+        } else {
+            loadVehicles();
+            loadCustomers();
+        }
         loadRecords();
+        replayJournal();
+        loadReservations();
+        loaded = true;
+        schedulePeriodicSnapshots();
+    }
+
+    private void loadSnapshot() {
+        try {
+            SnapshotStore.Header header = snapshots.read(
+                    line -> {
+                        Vehicle v = CsvFormat.parseVehicle(line);
+                        if (v != null) {
+                            vehicles.add(v);
+                        }
+                    },
+                    line -> {
+                        Customer c = CsvFormat.parseCustomer(line);
+                        if (c != null) {
+                            customers.add(c);
+                        }
+                    });
+            if (header != null) {
+                snapshotGeneration = header.generation;
+                snapshotJournalSeq = header.journalSequence;
+                if (journal != null) {
+                    journal.setBaseSequence(header.journalSequence);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error loading snapshot: " + e.getMessage());
+        }
+    }
+
+    private synchronized void schedulePeriodicSnapshots() {
+        long interval = Long.getLong(SNAPSHOT_INTERVAL_PROPERTY, 0);
+        if (interval <= 0 || snapshotTimer != null) {
+            return;
+        }
+        snapshotTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rental-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotTimer.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // vehicles.txt only holds each vehicle's status at creation; the journal has every
+    // change since. A rent or return is synced to the journal before its line goes to
+    // records.txt, so a crash in between leaves the line missing: those records are
+    // rebuilt from the journal, added to the history and appended to records.txt.
+    // Entries are applied as they are read; only the missing records are kept.
+    private void replayJournal() {
+        if (journal == null) {
+            return;
+        }
+        BitSet saved = savedSequences;
+        savedSequences = new BitSet();
+        long base = snapshotJournalSeq;
+        List<String> lines = new ArrayList<>();
+        try {
+            journal.replay((seq, type, plate, customerId, date, amount) -> {
+                if (seq <= base) {
+                    return; // already reflected in the snapshot
+                }
+                Vehicle v = findVehicleByPlate(plate);
+                if (v != null && type == RentalJournal.STATUS) {
+                    v.setStatus(Vehicle.VehicleStatus.values()[customerId]);
+                } else if (v != null) {
+                    boolean rent = type == RentalJournal.RENT;
+                    v.setStatus(rent ? Vehicle.VehicleStatus.Rented : Vehicle.VehicleStatus.Available);
+                    Customer c = findCustomerById(customerId);
+                    if (c != null && (seq - base > Integer.MAX_VALUE || !saved.get((int) (seq - base - 1)))) {
+                        RentalRecord record = new RentalRecord(v, c, date, amount, rent ? "RENT" : "RETURN");
+                        rentalHistory.addRecord(record);
+                        lines.add(CsvFormat.formatRecord(record, seq));
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Error replaying journal: " + e.getMessage());
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        try {
+            writeAll(recordOut, lines);
+        } catch (IOException e) {
+            System.out.println("Error saving records: " + e.getMessage());
+        }
+        flush();
+        System.out.println("Journal: restored " + lines.size() + " records missing from records.txt.");
     }
     private void loadVehicles() {
         File file = new File(VEHICLE_FILE);
@@ -257,40 +980,8 @@ public class RentalSystem {
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < 7) {
-                    continue; // skip malformed lines
-                }
-
-                String type = parts[0];
-                String plate = parts[1];
-                String make = parts[2];
-                String model = parts[3];
-                int year = Integer.parseInt(parts[4]);
-                String extra = parts[5];
-                String statusStr = parts[6];
-
-                Vehicle v = null;
-                if ("CAR".equals(type)) {
-                    int seats = Integer.parseInt(extra);
-                    v = new Car(make, model, year, seats);
-                } else if ("MINIBUS".equals(type)) {
-                    boolean accessible = Boolean.parseBoolean(extra);
-                    v = new Minibus(make, model, year, accessible);
-                } else if ("PICKUP".equals(type)) {
-                    String[] ex = extra.split(";");
-                    double cargo = Double.parseDouble(ex[0]);
-                    boolean hasTrailer = Boolean.parseBoolean(ex[1]);
-                    v = new PickupTruck(make, model, year, cargo, hasTrailer);
-                }
-
+                Vehicle v = CsvFormat.parseVehicle(line);
                 if (v != null) {
-                    v.setLicensePlate(plate);
-                    if ("Rented".equalsIgnoreCase(statusStr)) {
-                        v.setStatus(Vehicle.VehicleStatus.Rented);
-                    } else {
-                        v.setStatus(Vehicle.VehicleStatus.Available);
-                    }
                     vehicles.add(v);
                 }
             }
@@ -307,59 +998,190 @@ public class RentalSystem {
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < 2) {
-                    continue;
+                Customer c = CsvFormat.parseCustomer(line);
+                if (c != null) {
+                    customers.add(c);
                 }
-
-                int id = Integer.parseInt(parts[0]);
-                String name = parts[1];
-                customers.add(new Customer(id, name));
             }
         } catch (IOException | NumberFormatException e) {
             System.out.println("Error loading customers: " + e.getMessage());
         }
     }
     private void loadRecords() {
+        savedSequences = new BitSet();
         File file = new File(RECORD_FILE);
         if (!file.exists()) {
             return;
         }
+        String loader = System.getProperty(LOADER_PROPERTY);
+        if (LOADER_MAPPED.equals(loader) || LOADER_PARALLEL.equals(loader)) {
+            loadRecordsMapped(file, LOADER_PARALLEL.equals(loader));
+            return;
+        }
 
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             String line;
             while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < 5) {
-                    continue;
+                RentalRecord record = CsvFormat.parseRecord(line, this::findVehicleByPlate, this::findCustomerById);
+                if (record != null) {
+                    rentalHistory.addRecord(record);
+                    if (journal != null) {
+                        markSaved(CsvFormat.parseRecordSequence(line));
+                    }
                 }
+            }
+        } catch (IOException | NumberFormatException | DateTimeParseException e) {
+            System.out.println("Error loading records: " + e.getMessage());
+        }
+    }
+    // seq is a loaded record line's journal entry (0 if it has none)
+    private void markSaved(long seq) {
+        if (seq > snapshotJournalSeq && seq - snapshotJournalSeq <= Integer.MAX_VALUE) {
+            savedSequences.set((int) (seq - snapshotJournalSeq - 1));
+        }
+    }
 
-                String type = parts[0];
-                String plate = parts[1];
-                int customerId = Integer.parseInt(parts[2]);
-                LocalDate date = LocalDate.parse(parts[3]);
-                double amount = Double.parseDouble(parts[4]);
+    // RESERVE,id,plate,customerId,start,end and CANCEL,id lines, in the order they happened
+    private void loadReservations() {
+        File file = new File(RESERVATION_FILE);
+        if (!file.exists()) {
+            return;
+        }
 
-                Vehicle v = findVehicleByPlate(plate);
-                Customer c = findCustomerById(customerId);
-                if (v == null || c == null) {
-                    continue;
-                }
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                applyReservationLine(line);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error loading reservations: " + e.getMessage());
+        }
+    }
 
-                RentalRecord record = new RentalRecord(v, c, date, amount, type);
-                rentalHistory.addRecord(record);
+    // The reservation a RESERVE or CANCEL line booked or cancelled, with the line's id;
+    // null if it names an unknown reservation, vehicle or customer or the days clash.
+    private Reservation applyReservationLine(String line) {
+        String[] parts = line.split(",");
+        if (parts.length == 2 && "CANCEL".equals(parts[0])) {
+            Reservation r = reservations.find(Long.parseLong(parts[1]));
+            return r != null && reservations.cancel(r) ? r : null;
+        }
+        if (parts.length < 6 || !"RESERVE".equals(parts[0])) {
+            return null;
+        }
+
+        Vehicle v = findVehicleByPlate(parts[2]);
+        Customer c = findCustomerById(Integer.parseInt(parts[3]));
+        if (v == null || c == null) {
+            return null;
+        }
+        Reservation r = new Reservation(Long.parseLong(parts[1]), v, c,
+                LocalDate.parse(parts[4]), LocalDate.parse(parts[5]));
+        return reservations.restore(r) ? r : null;
+    }
+    private void loadRecordsMapped(File file, boolean parallel) {
+        try {
+            if (parallel) {
+                new ParallelRecordLoader(vehicles::find, this::findCustomerById, ForkJoinPool.commonPool())
+                        .load(file.toPath(), rentalHistory::addRecord, journal == null ? null : this::markSaved);
+            } else {
+                new MappedRecordLoader(vehicles::find, this::findCustomerById)
+                        .load(file.toPath(), rentalHistory::addRecord, journal == null ? null : this::markSaved);
             }
         } catch (IOException | NumberFormatException | DateTimeParseException e) {
             System.out.println("Error loading records: " + e.getMessage());
         }
     }
+    // Writes the in-memory vehicles, customers and history as BinaryStore files in dir.
+    public void exportBinary(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        BinaryStore.writeVehicles(dir.resolve(BinaryStore.VEHICLE_FILE), vehicles.asList());
+        BinaryStore.writeCustomers(dir.resolve(BinaryStore.CUSTOMER_FILE), customers.asList());
+        BinaryStore.writeRecords(dir.resolve(BinaryStore.RECORD_FILE), rentalHistory.getRentalHistory());
+    }
+
+    // Like loadData, but the vehicles, customers and records come from BinaryStore
+    // files in dir. They are saved to vehicles.txt, customers.txt and records.txt as
+    // they load, so later runs can use loadData; the journal and reservations are then
+    // loaded as usual. The working directory must not hold rental data yet.
+    public void importBinary(Path dir) throws IOException {
+        if (hasSavedData()) {
+            throw new IOException("The working directory already holds rental data; import into an empty one.");
+        }
+        shutdown();
+        Path vehicleFile = dir.resolve(BinaryStore.VEHICLE_FILE);
+        if (Files.exists(vehicleFile)) {
+            List<String> lines = new ArrayList<>();
+            for (Vehicle v : BinaryStore.readVehicles(vehicleFile)) {
+                if (vehicles.add(v)) {
+                    lines.add(CsvFormat.formatVehicle(v));
+                }
+            }
+            writeAll(vehicleOut, lines);
+        }
+        Path customerFile = dir.resolve(BinaryStore.CUSTOMER_FILE);
+        if (Files.exists(customerFile)) {
+            List<String> lines = new ArrayList<>();
+            for (Customer c : BinaryStore.readCustomers(customerFile)) {
+                if (customers.add(c)) {
+                    lines.add(CsvFormat.formatCustomer(c));
+                }
+            }
+            writeAll(customerOut, lines);
+        }
+        Path recordFile = dir.resolve(BinaryStore.RECORD_FILE);
+        if (Files.exists(recordFile)) {
+            List<RentalRecord> chunk = new ArrayList<>();
+            BinaryStore.readRecords(recordFile, vehicles::find, this::findCustomerById, record -> {
+                chunk.add(record);
+                if (chunk.size() == IMPORT_CHUNK) {
+                    restoreRecords(chunk);
+                    chunk.clear();
+                }
+            });
+            restoreRecords(chunk);
+        }
+        flush();
+        replayJournal();
+        loadReservations();
+        loaded = true;
+        schedulePeriodicSnapshots();
+    }
+
     // getters for JavaFX GUI
     public List<Vehicle> getAllVehicles() {
-        return Collections.unmodifiableList(vehicles);
+        return vehicles.asList();
+    }
+
+    public int countVehicles(Vehicle.VehicleStatus status) {
+        return vehicles.getAvailability().count(status);
+    }
+
+    public int countVehicles(Vehicle.VehicleStatus status, VehicleType type) {
+        return vehicles.getAvailability().count(status, type);
+    }
+
+    // vehicles currently in the status, in the order they were added
+    public Collection<Vehicle> getVehicles(Vehicle.VehicleStatus status) {
+        return vehicles.getAvailability().vehicles(status);
+    }
+
+    // any available vehicle of the type, or null
+    public Vehicle findAvailableVehicle(VehicleType type) {
+        return vehicles.getAvailability().findFirst(Vehicle.VehicleStatus.Available, type);
+    }
+
+    // e.g. searchVehicles(new VehicleQuery().type(VehicleType.CAR).minSeats(7))
+    public List<Vehicle> searchVehicles(VehicleQuery query) {
+        return vehicles.getSearch().search(query);
     }
 
     public List<Customer> getAllCustomers() {
-        return Collections.unmodifiableList(customers);
+        return customers.asList();
+    }
+
+    public RentalHistory getRentalHistory() {
+        return rentalHistory;
     }
 
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
-
 import javafx.application.Application;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -9,14 +12,178 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class RentalSystemGUI extends Application {
 
+    private static final int HISTORY_PAGE_SIZE = 100;
+    // rows whose cell values are kept; tables only ever show a screenful
+    private static final int ROW_CACHE_SIZE = 4096;
+
+    // loading, adds and rent/return run here so the FX thread only draws
+    private final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "rental-gui-worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final FleetModel model = new FleetModel();
+
+    // Cell values for one vehicle, built once when the row is first drawn. Status is
+    // the only one that changes, and FleetModel updates it from the status events.
+    private static class VehicleRow {
+        final ReadOnlyStringWrapper type;
+        final ReadOnlyStringWrapper plate;
+        final ReadOnlyStringWrapper make;
+        final ReadOnlyStringWrapper model;
+        final ReadOnlyIntegerWrapper year;
+        final ReadOnlyStringWrapper status;
+
+        VehicleRow(Vehicle v) {
+            VehicleType t = VehicleType.of(v);
+            type = new ReadOnlyStringWrapper(t == null ? "Other" : t.getLabel());
+            plate = new ReadOnlyStringWrapper(v.getLicensePlate());
+            make = new ReadOnlyStringWrapper(v.getMake());
+            model = new ReadOnlyStringWrapper(v.getModel());
+            year = new ReadOnlyIntegerWrapper(v.getYear());
+            status = new ReadOnlyStringWrapper(v.getStatus().toString());
+        }
+    }
+
+    private static class CustomerRow {
+        final ReadOnlyIntegerWrapper id;
+        final ReadOnlyStringWrapper name;
+
+        CustomerRow(Customer c) {
+            id = new ReadOnlyIntegerWrapper(c.getCustomerId());
+            name = new ReadOnlyStringWrapper(c.getCustomerName());
+        }
+    }
+
+    // Observable mirror of the fleet and customers for the tables. Changes arrive as
+    // RentalSystem events on whatever thread made them; they are queued and applied
+    // on the FX thread in one go per pulse, so a burst of rentals is one table update.
+    private static class FleetModel implements RentalEventBus.Subscriber {
+        final ObservableList<Vehicle> vehicles = FXCollections.observableArrayList();
+        final ObservableList<Customer> customers = FXCollections.observableArrayList();
+        // called on the FX thread after records were added
+        Runnable onRecordsAdded = () -> { };
+
+        private RentalSystem rentalSystem;
+        private final Map<Vehicle, VehicleRow> vehicleRows = lru();
+        private final Map<Customer, CustomerRow> customerRows = lru();
+        private final ConcurrentLinkedQueue<RentalEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+        // FX thread, once loadData has finished
+        void attach(RentalSystem rentalSystem) {
+            this.rentalSystem = rentalSystem;
+            rentalSystem.getEvents().subscribe(this);
+            syncLists();
+        }
+
+        VehicleRow row(Vehicle v) {
+            VehicleRow row = vehicleRows.get(v);
+            if (row == null) {
+                row = new VehicleRow(v);
+                vehicleRows.put(v, row);
+            }
+            return row;
+        }
+
+        CustomerRow row(Customer c) {
+            CustomerRow row = customerRows.get(c);
+            if (row == null) {
+                row = new CustomerRow(c);
+                customerRows.put(c, row);
+            }
+            return row;
+        }
+
+        @Override
+        public void onEvent(RentalEvent event) {
+            pending.add(event);
+            if (drainScheduled.compareAndSet(false, true)) {
+                Platform.runLater(this::drain);
+            }
+        }
+
+        private void drain() {
+            drainScheduled.set(false);
+            boolean added = false;
+            boolean records = false;
+            RentalEvent event;
+            while ((event = pending.poll()) != null) {
+                switch (event.getType()) {
+                    case VEHICLE_ADDED:
+                    case CUSTOMER_ADDED:
+                        added = true;
+                        break;
+                    case RENTED:
+                    case RETURNED:
+                        records = true;
+                        refreshStatus(event.getVehicle()); // the status changed too
+                        break;
+                    case STATUS_CHANGED:
+                        refreshStatus(event.getVehicle());
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (added) {
+                syncLists();
+            }
+            if (records) {
+                onRecordsAdded.run();
+            }
+        }
+
+        // no-op for a vehicle without a cached row
+        private void refreshStatus(Vehicle v) {
+            VehicleRow row = vehicleRows.get(v);
+            if (row != null) {
+                row.status.set(v.getStatus().toString());
+            }
+        }
+
+        // the registries only ever append, so whatever is past our size is new
+        private void syncLists() {
+            List<Vehicle> allVehicles = rentalSystem.getAllVehicles();
+            if (allVehicles.size() > vehicles.size()) {
+                vehicles.addAll(allVehicles.subList(vehicles.size(), allVehicles.size()));
+            }
+            List<Customer> allCustomers = rentalSystem.getAllCustomers();
+            if (allCustomers.size() > customers.size()) {
+                customers.addAll(allCustomers.subList(customers.size(), allCustomers.size()));
+            }
+        }
+
+        private static <K, V> Map<K, V> lru() {
+            return new LinkedHashMap<K, V>(ROW_CACHE_SIZE * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > ROW_CACHE_SIZE;
+                }
+            };
+        }
+    }
+
     @Override
     public void start(Stage primaryStage) {
 
         RentalSystem rentalSystem = RentalSystem.getInstance();
-        rentalSystem.loadData();  
         TabPane tabPane = new TabPane();
 
         Tab vehiclesTab = new Tab("Vehicles");
@@ -31,49 +198,49 @@ public class RentalSystemGUI extends Application {
         rentalsTab.setClosable(false);
         rentalsTab.setContent(createRentReturnPane(rentalSystem));
 
-        tabPane.getTabs().addAll(vehiclesTab, customersTab, rentalsTab);
+        Tab historyTab = new Tab("History");
+        historyTab.setClosable(false);
+        historyTab.setContent(createHistoryPane(rentalSystem));
+
+        tabPane.getTabs().addAll(vehiclesTab, customersTab, rentalsTab, historyTab);
 
+        Label statusLabel = new Label("Loading data...");
         BorderPane root = new BorderPane(tabPane);
+        root.setBottom(statusLabel);
+        BorderPane.setMargin(statusLabel, new Insets(4, 10, 4, 10));
         Scene scene = new Scene(root, 900, 600);
 
+        // load in the background; the window is up but disabled until it finishes
+        tabPane.setDisable(true);
+        Task<Void> load = new Task<>() {
+            @Override
+            protected Void call() {
+                rentalSystem.loadData();
+                return null;
+            }
+        };
+        load.setOnSucceeded(e -> {
+            model.attach(rentalSystem);
+            model.onRecordsAdded.run();
+            tabPane.setDisable(false);
+            statusLabel.setText(model.vehicles.size() + " vehicles, " + model.customers.size() + " customers");
+        });
+        load.setOnFailed(e -> statusLabel.setText("Loading failed: " + load.getException().getMessage()));
+        background.submit(load);
+
         primaryStage.setTitle("Vehicle Rental System");
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        background.shutdown();
+    }
+
     // ===== Vehicles tab =====
     private Pane createVehiclesPane(RentalSystem rentalSystem) {
-        TableView<Vehicle> table = new TableView<>();
-
-        TableColumn<Vehicle, String> typeCol = new TableColumn<>("Type");
-        typeCol.setCellValueFactory(data ->
-                new SimpleStringProperty(
-                        data.getValue() instanceof Car ? "Car" :
-                        data.getValue() instanceof Minibus ? "Minibus" :
-                        data.getValue() instanceof PickupTruck ? "Pickup" : "Other"));
-
-        TableColumn<Vehicle, String> plateCol = new TableColumn<>("Plate");
-        plateCol.setCellValueFactory(data ->
-                new SimpleStringProperty(data.getValue().getLicensePlate()));
-
-        TableColumn<Vehicle, String> makeCol = new TableColumn<>("Make");
-        makeCol.setCellValueFactory(data ->
-                new SimpleStringProperty(data.getValue().getMake()));
-
-        TableColumn<Vehicle, String> modelCol = new TableColumn<>("Model");
-        modelCol.setCellValueFactory(data ->
-                new SimpleStringProperty(data.getValue().getModel()));
-
-        TableColumn<Vehicle, Number> yearCol = new TableColumn<>("Year");
-        yearCol.setCellValueFactory(data ->
-                new SimpleIntegerProperty(data.getValue().getYear()));
-
-        TableColumn<Vehicle, String> statusCol = new TableColumn<>("Status");
-        statusCol.setCellValueFactory(data ->
-                new SimpleStringProperty(data.getValue().getStatus().toString()));
-
-        table.getColumns().addAll(typeCol, plateCol, makeCol, modelCol, yearCol, statusCol);
-        table.getItems().addAll(rentalSystem.getAllVehicles()); 
+        TableView<Vehicle> table = vehicleTable(true);
 
         // Form controls
         ComboBox<String> typeBox = new ComboBox<>();
@@ -133,13 +300,10 @@ public class RentalSystemGUI extends Application {
                 }
 
                 v.setLicensePlate(plate);
-                boolean ok = rentalSystem.addVehicle(v);
-                if (ok) {
-                    table.getItems().add(v);
-                    messageLabel.setText("Vehicle added.");
-                } else {
-                    messageLabel.setText("Add failed (duplicate or invalid).");
-                }
+                Vehicle vehicle = v;
+                // the table picks the new row up from the vehicle-added event
+                runInBackground(addButton, messageLabel, () -> rentalSystem.addVehicle(vehicle),
+                        "Vehicle added.", "Add failed (duplicate or invalid).");
             } catch (Exception ex) {
                 messageLabel.setText("Error: " + ex.getMessage());
             }
@@ -152,20 +316,61 @@ public class RentalSystemGUI extends Application {
         return root;
     }
 
-    // ===== Customers tab =====
-    private Pane createCustomersPane(RentalSystem rentalSystem) {
-        TableView<Customer> table = new TableView<>();
+    // every vehicle table shares the model's list and cached rows; sorting is off
+    // because it would build a row for every vehicle in the fleet
+    private TableView<Vehicle> vehicleTable(boolean allColumns) {
+        TableView<Vehicle> table = new TableView<>(model.vehicles);
+
+        TableColumn<Vehicle, String> typeCol = new TableColumn<>("Type");
+        typeCol.setCellValueFactory(data -> model.row(data.getValue()).type.getReadOnlyProperty());
+
+        TableColumn<Vehicle, String> plateCol = new TableColumn<>("Plate");
+        plateCol.setCellValueFactory(data -> model.row(data.getValue()).plate.getReadOnlyProperty());
+
+        TableColumn<Vehicle, String> makeCol = new TableColumn<>("Make");
+        makeCol.setCellValueFactory(data -> model.row(data.getValue()).make.getReadOnlyProperty());
+
+        TableColumn<Vehicle, String> modelCol = new TableColumn<>("Model");
+        modelCol.setCellValueFactory(data -> model.row(data.getValue()).model.getReadOnlyProperty());
+
+        TableColumn<Vehicle, Number> yearCol = new TableColumn<>("Year");
+        yearCol.setCellValueFactory(data -> model.row(data.getValue()).year.getReadOnlyProperty());
+
+        TableColumn<Vehicle, String> statusCol = new TableColumn<>("Status");
+        statusCol.setCellValueFactory(data -> model.row(data.getValue()).status.getReadOnlyProperty());
+
+        if (allColumns) {
+            table.getColumns().addAll(typeCol, plateCol, makeCol, modelCol, yearCol, statusCol);
+        } else {
+            table.getColumns().addAll(plateCol, statusCol);
+        }
+        for (TableColumn<Vehicle, ?> column : table.getColumns()) {
+            column.setSortable(false);
+        }
+        table.setFixedCellSize(24);
+        return table;
+    }
+
+    private TableView<Customer> customerTable() {
+        TableView<Customer> table = new TableView<>(model.customers);
 
         TableColumn<Customer, Number> idCol = new TableColumn<>("ID");
-        idCol.setCellValueFactory(data ->
-                new SimpleIntegerProperty(data.getValue().getCustomerId()));
+        idCol.setCellValueFactory(data -> model.row(data.getValue()).id.getReadOnlyProperty());
 
         TableColumn<Customer, String> nameCol = new TableColumn<>("Name");
-        nameCol.setCellValueFactory(data ->
-                new SimpleStringProperty(data.getValue().getCustomerName()));
+        nameCol.setCellValueFactory(data -> model.row(data.getValue()).name.getReadOnlyProperty());
 
         table.getColumns().addAll(idCol, nameCol);
-        table.getItems().addAll(rentalSystem.getAllCustomers()); 
+        for (TableColumn<Customer, ?> column : table.getColumns()) {
+            column.setSortable(false);
+        }
+        table.setFixedCellSize(24);
+        return table;
+    }
+
+    // ===== Customers tab =====
+    private Pane createCustomersPane(RentalSystem rentalSystem) {
+        TableView<Customer> table = customerTable();
 
         TextField idField = new TextField();
         idField.setPromptText("ID");
@@ -181,13 +386,8 @@ public class RentalSystemGUI extends Application {
                 int id = Integer.parseInt(idField.getText().trim());
                 String name = nameField.getText().trim();
                 Customer c = new Customer(id, name);
-                boolean ok = rentalSystem.addCustomer(c);
-                if (ok) {
-                    table.getItems().add(c);
-                    messageLabel.setText("Customer added.");
-                } else {
-                    messageLabel.setText("Add failed (duplicate ID?).");
-                }
+                runInBackground(addButton, messageLabel, () -> rentalSystem.addCustomer(c),
+                        "Customer added.", "Add failed (duplicate ID?).");
             } catch (Exception ex) {
                 messageLabel.setText("Error: " + ex.getMessage());
             }
@@ -201,25 +401,8 @@ public class RentalSystemGUI extends Application {
 
     // ===== Rent / Return tab =====
     private Pane createRentReturnPane(RentalSystem rentalSystem) {
-        TableView<Vehicle> vehicleTable = new TableView<>();
-        TableColumn<Vehicle, String> plateCol = new TableColumn<>("Plate");
-        plateCol.setCellValueFactory(data ->
-                new SimpleStringProperty(data.getValue().getLicensePlate()));
-        TableColumn<Vehicle, String> statusCol = new TableColumn<>("Status");
-        statusCol.setCellValueFactory(data ->
-                new SimpleStringProperty(data.getValue().getStatus().toString()));
-        vehicleTable.getColumns().addAll(plateCol, statusCol);
-        vehicleTable.getItems().addAll(rentalSystem.getAllVehicles());
-
-        TableView<Customer> customerTable = new TableView<>();
-        TableColumn<Customer, Number> idCol = new TableColumn<>("ID");
-        idCol.setCellValueFactory(data ->
-                new SimpleIntegerProperty(data.getValue().getCustomerId()));
-        TableColumn<Customer, String> nameCol = new TableColumn<>("Name");
-        nameCol.setCellValueFactory(data ->
-                new SimpleStringProperty(data.getValue().getCustomerName()));
-        customerTable.getColumns().addAll(idCol, nameCol);
-        customerTable.getItems().addAll(rentalSystem.getAllCustomers());
+        TableView<Vehicle> vehicleTable = vehicleTable(false);
+        TableView<Customer> customerTable = customerTable();
 
         TextField amountField = new TextField();
         amountField.setPromptText("Rent amount");
@@ -231,6 +414,7 @@ public class RentalSystemGUI extends Application {
         Button returnButton = new Button("Return");
         Label messageLabel = new Label();
 
+        // status cells follow the rent/return events, so no refresh() afterwards
         rentButton.setOnAction(e -> {
             Vehicle v = vehicleTable.getSelectionModel().getSelectedItem();
             Customer c = customerTable.getSelectionModel().getSelectedItem();
@@ -242,13 +426,10 @@ public class RentalSystemGUI extends Application {
             if (!amountField.getText().trim().isEmpty()) {
                 amount = Double.parseDouble(amountField.getText().trim());
             }
-            boolean ok = rentalSystem.rentVehicle(v, c, LocalDate.now(), amount);
-            if (ok) {
-                messageLabel.setText("Vehicle rented.");
-            } else {
-                messageLabel.setText("Rent failed.");
-            }
-            vehicleTable.refresh();
+            double rentAmount = amount;
+            runInBackground(rentButton, messageLabel,
+                    () -> rentalSystem.rentVehicle(v, c, LocalDate.now(), rentAmount),
+                    "Vehicle rented.", "Rent failed.");
         });
 
         returnButton.setOnAction(e -> {
@@ -262,13 +443,10 @@ public class RentalSystemGUI extends Application {
             if (!feesField.getText().trim().isEmpty()) {
                 fees = Double.parseDouble(feesField.getText().trim());
             }
-            boolean ok = rentalSystem.returnVehicle(v, c, LocalDate.now(), fees);
-            if (ok) {
-                messageLabel.setText("Vehicle returned.");
-            } else {
-                messageLabel.setText("Return failed.");
-            }
-            vehicleTable.refresh();
+            double extraFees = fees;
+            runInBackground(returnButton, messageLabel,
+                    () -> rentalSystem.returnVehicle(v, c, LocalDate.now(), extraFees),
+                    "Vehicle returned.", "Return failed.");
         });
 
         VBox left = new VBox(10, new Label("Vehicles"), vehicleTable);
@@ -283,6 +461,156 @@ public class RentalSystemGUI extends Application {
         return root;
     }
 
+    // ===== History tab =====
+    private Pane createHistoryPane(RentalSystem rentalSystem) {
+        TableView<RentalRecord> table = new TableView<>();
+
+        TableColumn<RentalRecord, String> typeCol = new TableColumn<>("Type");
+        typeCol.setCellValueFactory(data -> new ReadOnlyStringWrapper(data.getValue().getRecordType()));
+        TableColumn<RentalRecord, String> plateCol = new TableColumn<>("Plate");
+        plateCol.setCellValueFactory(data ->
+                new ReadOnlyStringWrapper(data.getValue().getVehicle().getLicensePlate()));
+        TableColumn<RentalRecord, String> customerCol = new TableColumn<>("Customer");
+        customerCol.setCellValueFactory(data ->
+                new ReadOnlyStringWrapper(data.getValue().getCustomer().getCustomerName()));
+        TableColumn<RentalRecord, String> dateCol = new TableColumn<>("Date");
+        dateCol.setCellValueFactory(data ->
+                new ReadOnlyStringWrapper(data.getValue().getRecordDate().toString()));
+        TableColumn<RentalRecord, String> amountCol = new TableColumn<>("Amount");
+        amountCol.setCellValueFactory(data ->
+                new ReadOnlyStringWrapper(String.format("$%.2f", data.getValue().getTotalAmount())));
+        table.getColumns().addAll(typeCol, plateCol, customerCol, dateCol, amountCol);
+
+        TextField plateField = new TextField();
+        plateField.setPromptText("Plate");
+        TextField customerField = new TextField();
+        customerField.setPromptText("Customer ID");
+        DatePicker fromPicker = new DatePicker();
+        fromPicker.setPromptText("From");
+        DatePicker toPicker = new DatePicker();
+        toPicker.setPromptText("To");
+        Button filterButton = new Button("Filter");
+        Button clearButton = new Button("Clear");
+        Label messageLabel = new Label();
+
+        // null while unfiltered: pages then come straight from the history
+        List<List<RentalRecord>> filtered = new ArrayList<>();
+        filtered.add(null);
+        // only the shown page is ever copied into the table
+        IntConsumer showPage = index -> {
+            List<RentalRecord> matches = filtered.get(0);
+            if (matches == null) {
+                table.getItems().setAll(rentalSystem.getRentalHistory()
+                        .getPage((long) index * HISTORY_PAGE_SIZE, HISTORY_PAGE_SIZE).getRecords());
+            } else {
+                int from = Math.min(index * HISTORY_PAGE_SIZE, matches.size());
+                table.getItems().setAll(matches.subList(from, Math.min(from + HISTORY_PAGE_SIZE, matches.size())));
+            }
+        };
+        Pagination pagination = new Pagination(1, 0);
+        pagination.setPageFactory(index -> {
+            showPage.accept(index);
+            return table;
+        });
+
+        Runnable updatePageCount = () -> {
+            List<RentalRecord> matches = filtered.get(0);
+            int total = matches == null ? rentalSystem.getRentalHistory().getRentalHistory().size() : matches.size();
+            int pages = Math.max(1, (total + HISTORY_PAGE_SIZE - 1) / HISTORY_PAGE_SIZE);
+            if (pagination.getPageCount() != pages) {
+                pagination.setPageCount(pages);
+            }
+            messageLabel.setText(total + " records");
+        };
+        model.onRecordsAdded = updatePageCount;
+
+        filterButton.setOnAction(e -> {
+            String plate = plateField.getText().trim();
+            String customer = customerField.getText().trim();
+            LocalDate from = fromPicker.getValue();
+            LocalDate to = toPicker.getValue();
+            Task<List<RentalRecord>> query = new Task<>() {
+                @Override
+                protected List<RentalRecord> call() {
+                    return filterHistory(rentalSystem.getRentalHistory(), plate, customer, from, to);
+                }
+            };
+            query.setOnSucceeded(ev -> {
+                filtered.set(0, query.getValue());
+                updatePageCount.run();
+                pagination.setCurrentPageIndex(0);
+                showPage.accept(0);
+            });
+            query.setOnFailed(ev -> messageLabel.setText("Error: " + query.getException().getMessage()));
+            messageLabel.setText("Searching...");
+            background.submit(query);
+        });
+
+        clearButton.setOnAction(e -> {
+            plateField.clear();
+            customerField.clear();
+            fromPicker.setValue(null);
+            toPicker.setValue(null);
+            filtered.set(0, null);
+            updatePageCount.run();
+            pagination.setCurrentPageIndex(0);
+            showPage.accept(0);
+        });
+
+        HBox filters = new HBox(8, plateField, customerField, fromPicker, toPicker, filterButton, clearButton);
+        VBox root = new VBox(10, filters, pagination, messageLabel);
+        VBox.setVgrow(pagination, Priority.ALWAYS);
+        root.setPadding(new Insets(10));
+        return root;
+    }
+
+    // runs on the worker thread; the narrowest index answers first, the rest filter it
+    private static List<RentalRecord> filterHistory(RentalHistory history, String plate, String customer,
+                                                    LocalDate from, LocalDate to) {
+        Stream<RentalRecord> matches;
+        if (!plate.isEmpty()) {
+            matches = history.getRentalRecordsByVehicle(plate).stream();
+        } else if (!customer.isEmpty()) {
+            matches = history.getRentalRecordsByCustomerId(Integer.parseInt(customer)).stream();
+        } else if (from != null || to != null) {
+            matches = history.streamBetween(from == null ? LocalDate.MIN : from, to == null ? LocalDate.MAX : to);
+        } else {
+            matches = history.stream();
+        }
+        if (!customer.isEmpty()) {
+            int id = Integer.parseInt(customer);
+            matches = matches.filter(r -> r.getCustomer().getCustomerId() == id);
+        }
+        if (from != null) {
+            matches = matches.filter(r -> !r.getRecordDate().isBefore(from));
+        }
+        if (to != null) {
+            matches = matches.filter(r -> !r.getRecordDate().isAfter(to));
+        }
+        return matches.collect(Collectors.toList());
+    }
+
+    // runs action on the worker thread with the button disabled, then reports the result
+    private void runInBackground(Button button, Label messageLabel, BooleanSupplier action,
+                                 String success, String failure) {
+        Task<Boolean> task = new Task<>() {
+            @Override
+            protected Boolean call() {
+                return action.getAsBoolean();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            button.setDisable(false);
+            messageLabel.setText(task.getValue() ? success : failure);
+        });
+        task.setOnFailed(e -> {
+            button.setDisable(false);
+            messageLabel.setText("Error: " + task.getException().getMessage());
+        });
+        button.setDisable(true);
+        background.submit(task);
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
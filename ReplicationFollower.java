@@ -0,0 +1,262 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Hot standby for a ReplicationPrimary. Applies the primary's snapshot and then each
+// change, in order, to this process's RentalSystem through its ordinary methods, so
+// the replica's files and journal match the primary's and it never needs loadData's
+// replay. Meanwhile its RentalHttpServer answers searches and history read-only.
+//
+// When the primary goes away (connection closed, or silent for takeoverMillis, well
+// above its heartbeat) the replica takes over: the HTTP server accepts changes and,
+// with --replication-port, a replica of its own can follow it (on loopback unless
+// --bind names another address, as for ReplicationPrimary). A replica that lost the
+// primary before the snapshot was complete does not take over. Reservations are
+// replicated with everything else, so they survive a takeover.
+//
+// java ReplicationFollower --primary host:7070 [--port 8081] [--replication-port 7071]
+//                          [--bind address] [--takeover-ms 3000]
+//
+// Start it in an empty directory: the snapshot is saved like any new data.
+public class ReplicationFollower {
+
+    // snapshot history is restored this many records at a time
+    private static final int HISTORY_CHUNK = 10000;
+
+    private final RentalSystem rentalSystem;
+    private final String host;
+    private final int port;
+    private final long takeoverMillis;
+    private Runnable onTakeover = () -> { };
+    private volatile Socket socket;
+    private volatile boolean live;
+    private volatile boolean promoted;
+    private volatile long applied;
+    private volatile long lastSequence;
+
+    public ReplicationFollower(RentalSystem rentalSystem, String host, int port, long takeoverMillis) {
+        this.rentalSystem = rentalSystem;
+        this.host = host;
+        this.port = port;
+        this.takeoverMillis = takeoverMillis;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String primary = null;
+        int port = 8081;
+        int replicationPort = -1;
+        String bind = null;
+        long takeoverMillis = 3000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--primary".equals(args[i])) {
+                primary = args[i + 1];
+            } else if ("--port".equals(args[i])) {
+                port = Integer.parseInt(args[i + 1]);
+            } else if ("--replication-port".equals(args[i])) {
+                replicationPort = Integer.parseInt(args[i + 1]);
+            } else if ("--bind".equals(args[i])) {
+                bind = args[i + 1];
+            } else if ("--takeover-ms".equals(args[i])) {
+                takeoverMillis = Long.parseLong(args[i + 1]);
+            }
+        }
+        int colon = primary == null ? -1 : primary.lastIndexOf(':');
+        if (colon < 0) {
+            System.out.println("Usage: java ReplicationFollower --primary host:port [--port 8081]"
+                    + " [--replication-port 7071] [--bind address] [--takeover-ms 3000]");
+            return;
+        }
+        if (RentalSystem.hasSavedData()) {
+            System.out.println("Start the replica in an empty directory; this one already holds rental data.");
+            return;
+        }
+
+        RentalSystem rentalSystem = RentalSystem.getInstance(); // no loadData: the primary sends everything
+        RentalHttpServer http = new RentalHttpServer(rentalSystem);
+        http.setReadOnly(true);
+        http.start(port);
+        ReplicationFollower follower = new ReplicationFollower(rentalSystem, primary.substring(0, colon),
+                Integer.parseInt(primary.substring(colon + 1)), takeoverMillis);
+        int nextPort = replicationPort;
+        String nextBind = bind;
+        follower.setOnTakeover(() -> {
+            http.setReadOnly(false);
+            if (nextPort >= 0) {
+                try {
+                    ReplicationPrimary next = new ReplicationPrimary(rentalSystem);
+                    next.start(ReplicationPrimary.address(nextBind, nextPort));
+                    System.out.println("Replicas can follow on port " + next.getPort());
+                } catch (IOException e) {
+                    System.out.println("Error opening replication port: " + e.getMessage());
+                }
+            }
+            System.out.println("Now the primary; accepting changes on port " + http.getPort());
+        });
+        follower.start();
+        System.out.println("Replica serving queries on port " + http.getPort());
+    }
+
+    // runs once the replica takes over, on the replication thread
+    public void setOnTakeover(Runnable onTakeover) {
+        this.onTakeover = onTakeover;
+    }
+
+    public void start() {
+        Thread thread = new Thread(this::follow, "rental-replica");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stops following and takes over now, e.g. for a planned switch-over.
+    public void promote() {
+        takeOver("left by hand");
+    }
+
+    // true once the snapshot is applied and changes are coming in live
+    public boolean isLive() {
+        return live;
+    }
+
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    // live changes applied so far
+    public long getApplied() {
+        return applied;
+    }
+
+    // bus sequence of the last change applied
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    private void follow() {
+        String why = "closed the connection";
+        try (Socket s = new Socket()) {
+            socket = s;
+            s.connect(new InetSocketAddress(host, port), (int) takeoverMillis);
+            s.setSoTimeout((int) takeoverMillis);
+            s.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8),
+                    1 << 16);
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+            System.out.println("Following the primary at " + host + ":" + port);
+            List<RentalRecord> history = new ArrayList<>();
+            long acked = 0;
+            String line;
+            while (!promoted && (line = in.readLine()) != null) {
+                apply(line, history);
+                // acknowledge once the lines that had arrived are all applied
+                if (live && applied != acked && !in.ready()) {
+                    acked = applied;
+                    out.write(ReplicationPrimary.ACK + "," + acked);
+                    out.newLine();
+                    out.flush();
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            why = "was silent for " + takeoverMillis + " ms";
+        } catch (IOException e) {
+            why = "is unreachable (" + e.getMessage() + ")";
+        } catch (RuntimeException e) {
+            why = "sent a line this replica could not apply (" + e + ")";
+        }
+        takeOver(why);
+    }
+
+    private void apply(String line, List<RentalRecord> history) {
+        int first = line.indexOf(',');
+        int second = line.indexOf(',', first + 1);
+        long sequence = Long.parseLong(line.substring(0, first));
+        String kind = second < 0 ? line.substring(first + 1) : line.substring(first + 1, second);
+        String payload = second < 0 ? null : line.substring(second + 1);
+
+        if (ReplicationPrimary.HISTORY.equals(kind)) {
+            RentalRecord record = CsvFormat.parseRecord(payload, rentalSystem::findVehicleByPlate,
+                    rentalSystem::findCustomerById);
+            if (record != null) {
+                history.add(record);
+            }
+            if (history.size() >= HISTORY_CHUNK) {
+                rentalSystem.restoreRecords(history);
+                history.clear();
+            }
+            return;
+        }
+        if (!history.isEmpty()) {
+            rentalSystem.restoreRecords(history);
+            history.clear();
+        }
+
+        if (ReplicationPrimary.VEHICLE.equals(kind)) {
+            Vehicle v = CsvFormat.parseVehicle(payload);
+            if (v != null) {
+                rentalSystem.addVehicle(v);
+            }
+        } else if (ReplicationPrimary.CUSTOMER.equals(kind)) {
+            Customer c = CsvFormat.parseCustomer(payload);
+            if (c != null) {
+                rentalSystem.addCustomer(c);
+            }
+        } else if (ReplicationPrimary.STATUS.equals(kind)) {
+            int comma = payload.lastIndexOf(',');
+            Vehicle v = rentalSystem.findVehicleByPlate(payload.substring(0, comma));
+            if (v != null) {
+                rentalSystem.setVehicleStatus(v, CsvFormat.parseStatus(payload.substring(comma + 1)));
+            }
+        } else if (ReplicationPrimary.RECORD.equals(kind)) {
+            RentalRecord r = CsvFormat.parseRecord(payload, rentalSystem::findVehicleByPlate,
+                    rentalSystem::findCustomerById);
+            boolean done = r != null && ("RENT".equals(r.getRecordType())
+                    ? rentalSystem.rentVehicle(r.getVehicle(), r.getCustomer(), r.getRecordDate(), r.getTotalAmount())
+                    : rentalSystem.returnVehicle(r.getVehicle(), r.getCustomer(), r.getRecordDate(), r.getTotalAmount()));
+            if (!done) {
+                System.out.println("Replica could not apply change " + sequence + ": " + payload);
+            }
+        } else if (ReplicationPrimary.RESERVATION.equals(kind)) {
+            if (!rentalSystem.restoreReservation(payload)) {
+                System.out.println("Replica could not apply change " + sequence + ": " + payload);
+            }
+        } else if (ReplicationPrimary.LIVE.equals(kind)) {
+            live = true;
+            System.out.println("Replica caught up: " + rentalSystem.getAllVehicles().size() + " vehicles, "
+                    + rentalSystem.getAllCustomers().size() + " customers, "
+                    + rentalSystem.getRentalHistory().getRentalHistory().size() + " records");
+        }
+        if (sequence > 0) {
+            applied++;
+            lastSequence = sequence;
+        }
+    }
+
+    private synchronized void takeOver(String why) {
+        if (promoted) {
+            return;
+        }
+        if (!live) {
+            System.out.println("The primary " + why + " before the snapshot was complete; not taking over.");
+            return;
+        }
+        promoted = true;
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+        rentalSystem.flush();
+        System.out.println("The primary " + why + "; taking over after change " + lastSequence + ".");
+        onTakeover.run();
+    }
+}
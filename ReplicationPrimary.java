@@ -0,0 +1,375 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Ships every change of a RentalSystem to hot-standby replicas (ReplicationFollower)
+// over TCP, one text line per item, "<sequence>,<kind>,<payload>", with payloads in
+// the flat-file formats of CsvFormat:
+//
+//   0,VEHICLE,<vehicles.txt line>     on connect, a snapshot of the whole state,
+//   0,CUSTOMER,<customers.txt line>   taken with every stripe held so it ends
+//   0,HISTORY,<records.txt line>      exactly where the live changes begin
+//   0,RESERVATION,<RESERVE line>      each current booking, as in reservations.txt
+//   0,LIVE                            end of the snapshot
+//   n,VEHICLE,<vehicles.txt line>     live changes, numbered by the event bus
+//   n,CUSTOMER,<customers.txt line>
+//   n,STATUS,<plate>,<status>
+//   n,RECORD,<records.txt line>       a rent or return for the replica to apply
+//   n,RESERVATION,<RESERVE or CANCEL line>
+//   0,PING                            after HEARTBEAT_MS without anything else
+//
+// The replica answers ACK,<live changes applied>, which awaitReplicated() waits on.
+// Changes reach a replica through an async event-bus subscription, so rent/return
+// never wait on the network unless a replica falls a whole queue behind.
+//
+// The replication port only listens on loopback unless --bind (or start with an
+// InetSocketAddress) names another address; replicas are not authenticated, so only
+// open it to trusted hosts.
+//
+// java ReplicationPrimary [--port 8080] [--replication-port 7070] [--bind address]
+public class ReplicationPrimary {
+
+    static final String VEHICLE = "VEHICLE";
+    static final String CUSTOMER = "CUSTOMER";
+    static final String HISTORY = "HISTORY";
+    static final String LIVE = "LIVE";
+    static final String STATUS = "STATUS";
+    static final String RECORD = "RECORD";
+    static final String RESERVATION = "RESERVATION";
+    static final String PING = "PING";
+    static final String ACK = "ACK";
+    static final long HEARTBEAT_MS = 500;
+
+    // -Drental.replication.capacity is how many changes may wait for one replica
+    private static final String CAPACITY_PROPERTY = "rental.replication.capacity";
+
+    private final RentalSystem rentalSystem;
+    private final List<Connection> replicas = new CopyOnWriteArrayList<>();
+    private ServerSocket server;
+    private Thread acceptor;
+    private Thread heartbeat;
+    private volatile boolean running;
+
+    // one replica; owns its socket, its bus subscription and a thread reading ACKs
+    private class Connection {
+        private final Socket socket;
+        private final BufferedWriter out;
+        private RentalEventBus.Subscription subscription;
+        // live lines that arrive while the snapshot is still being sent
+        private List<String> backlog = new ArrayList<>();
+        private long shipped;
+        private volatile long acked;
+        private volatile long lastWrite;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                    1 << 16);
+        }
+
+        void open() throws IOException {
+            List<String> vehicleLines = new ArrayList<>();
+            List<String> reservationLines = new ArrayList<>();
+            int[] counts = new int[2];
+            rentalSystem.whileQuiet(() -> {
+                for (Vehicle v : rentalSystem.getAllVehicles()) {
+                    vehicleLines.add(CsvFormat.formatVehicle(v)); // now, while no status can change
+                }
+                for (Reservation r : rentalSystem.getAllReservations()) {
+                    reservationLines.add(CsvFormat.formatReservation(r)); // bookings change under the stripes too
+                }
+                counts[0] = rentalSystem.getAllCustomers().size();
+                counts[1] = rentalSystem.getRentalHistory().getRentalHistory().size();
+                subscription = rentalSystem.getEvents().subscribeAsync(this::ship,
+                        Integer.getInteger(CAPACITY_PROPERTY, 65536), RentalEventBus.DEFAULT_MAX_BATCH);
+            });
+            // the registries and history only append, so the first counts[] entries stay put
+            for (String line : vehicleLines) {
+                writeLine(0, VEHICLE, line);
+            }
+            List<Customer> customers = rentalSystem.getAllCustomers();
+            for (int i = 0; i < counts[0]; i++) {
+                writeLine(0, CUSTOMER, CsvFormat.formatCustomer(customers.get(i)));
+            }
+            List<RentalRecord> records = rentalSystem.getRentalHistory().getRentalHistory();
+            for (int i = 0; i < counts[1]; i++) {
+                writeLine(0, HISTORY, CsvFormat.formatRecord(records.get(i)));
+            }
+            for (String line : reservationLines) {
+                writeLine(0, RESERVATION, line);
+            }
+            synchronized (this) {
+                writeLine(0, LIVE, null);
+                for (String line : backlog) {
+                    out.write(line);
+                    out.newLine();
+                }
+                backlog = null;
+                out.flush();
+                lastWrite = System.currentTimeMillis();
+            }
+            Thread reader = new Thread(this::readAcks, "rental-replication-acks");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        // event-bus thread: one flush per batch
+        private void ship(List<RentalEvent> events) {
+            try {
+                synchronized (this) {
+                    for (RentalEvent e : events) {
+                        String line = format(e);
+                        shipped++;
+                        if (backlog != null) {
+                            backlog.add(line);
+                        } else {
+                            out.write(line);
+                            out.newLine();
+                        }
+                    }
+                    if (backlog == null) {
+                        out.flush();
+                        lastWrite = System.currentTimeMillis();
+                    }
+                }
+            } catch (IOException e) {
+                close("lost (" + e.getMessage() + ")");
+            }
+        }
+
+        void ping() {
+            try {
+                synchronized (this) {
+                    if (backlog != null || System.currentTimeMillis() - lastWrite < HEARTBEAT_MS) {
+                        return;
+                    }
+                    writeLine(0, PING, null);
+                    out.flush();
+                    lastWrite = System.currentTimeMillis();
+                }
+            } catch (IOException e) {
+                close("lost (" + e.getMessage() + ")");
+            }
+        }
+
+        private void readAcks() {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith(ACK + ",")) {
+                        acked = Long.parseLong(line.substring(ACK.length() + 1));
+                        synchronized (ReplicationPrimary.this) {
+                            ReplicationPrimary.this.notifyAll();
+                        }
+                    }
+                }
+                close("disconnected");
+            } catch (IOException | NumberFormatException e) {
+                close("lost (" + e.getMessage() + ")");
+            }
+        }
+
+        private void writeLine(long sequence, String kind, String payload) throws IOException {
+            out.write(payload == null ? sequence + "," + kind : sequence + "," + kind + "," + payload);
+            out.newLine();
+        }
+
+        // takes no lock first, so it also unblocks a ship() stuck writing to a dead replica
+        void close(String why) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already gone
+            }
+            replicas.remove(this);
+            if (running) {
+                System.out.println("Replica " + socket.getRemoteSocketAddress() + " " + why);
+            }
+            synchronized (ReplicationPrimary.this) {
+                ReplicationPrimary.this.notifyAll();
+            }
+        }
+    }
+
+    public ReplicationPrimary(RentalSystem rentalSystem) {
+        this.rentalSystem = rentalSystem;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int replicationPort = 7070;
+        String bind = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--port".equals(args[i])) {
+                port = Integer.parseInt(args[i + 1]);
+            } else if ("--replication-port".equals(args[i])) {
+                replicationPort = Integer.parseInt(args[i + 1]);
+            } else if ("--bind".equals(args[i])) {
+                bind = args[i + 1];
+            }
+        }
+        RentalSystem rentalSystem = RentalSystem.getInstance();
+        rentalSystem.loadData();
+        RentalHttpServer http = new RentalHttpServer(rentalSystem);
+        http.start(port);
+        ReplicationPrimary primary = new ReplicationPrimary(rentalSystem);
+        primary.start(address(bind, replicationPort));
+        System.out.println("Rental service listening on port " + http.getPort()
+                + ", replicas connect to " + primary.server.getInetAddress().getHostAddress()
+                + " port " + primary.getPort());
+    }
+
+    // --bind's address (0.0.0.0 for every interface), or loopback if there is none
+    static InetSocketAddress address(String bind, int port) {
+        return bind == null
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                : new InetSocketAddress(bind, port);
+    }
+
+    // port 0 picks a free port; see getPort(). Listens on loopback only, so replicas
+    // on other hosts need start(InetSocketAddress) with an address they can reach.
+    public synchronized void start(int port) throws IOException {
+        start(address(null, port));
+    }
+
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        server = new ServerSocket();
+        server.bind(address);
+        running = true;
+        acceptor = new Thread(this::accept, "rental-replication");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        heartbeat = new Thread(this::heartbeat, "rental-replication-ping");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+    }
+
+    // closes the port and every replica connection; the replicas take over from here
+    public synchronized void stop() {
+        running = false;
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error closing replication port: " + e.getMessage());
+        }
+        for (Connection c : replicas) {
+            c.close("closed");
+        }
+        if (heartbeat != null) {
+            heartbeat.interrupt();
+        }
+    }
+
+    public synchronized int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    // Waits until every connected replica has applied everything published before the
+    // call; false on timeout. Use it where a change must not be lost with the primary.
+    public boolean awaitReplicated(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Connection c : replicas) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0 || !c.subscription.awaitDelivered(left)) {
+                return false;
+            }
+            long target;
+            synchronized (c) {
+                target = c.shipped;
+            }
+            synchronized (this) {
+                while (c.acked < target && !c.closed.get()) {
+                    left = deadline - System.currentTimeMillis();
+                    if (left <= 0) {
+                        return false;
+                    }
+                    wait(left);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void accept() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                return; // stop() closed the port
+            } catch (IOException e) {
+                System.out.println("Error accepting replica: " + e.getMessage());
+                continue;
+            }
+            Connection c = null;
+            try {
+                socket.setTcpNoDelay(true);
+                c = new Connection(socket);
+                c.open();
+                replicas.add(c);
+                System.out.println("Replica " + socket.getRemoteSocketAddress() + " connected");
+            } catch (IOException e) {
+                if (c != null) {
+                    c.close("lost during snapshot (" + e.getMessage() + ")");
+                }
+            }
+        }
+    }
+
+    private void heartbeat() {
+        while (running) {
+            for (Connection c : replicas) {
+                c.ping();
+            }
+            try {
+                Thread.sleep(HEARTBEAT_MS / 2);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    static String format(RentalEvent e) {
+        String head = e.getSequence() + ",";
+        switch (e.getType()) {
+            case VEHICLE_ADDED:
+                return head + VEHICLE + "," + CsvFormat.formatVehicle(e.getVehicle(), e.getStatus());
+            case CUSTOMER_ADDED:
+                return head + CUSTOMER + "," + CsvFormat.formatCustomer(e.getCustomer());
+            case STATUS_CHANGED:
+                return head + STATUS + "," + e.getVehicle().getLicensePlate() + "," + e.getStatus();
+            case RESERVED:
+                return head + RESERVATION + "," + CsvFormat.formatReservation(e.getReservation());
+            case CANCELLED:
+                return head + RESERVATION + "," + CsvFormat.formatCancellation(e.getReservation());
+            default:
+                return head + RECORD + "," + CsvFormat.formatRecord(e.getRecord());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import java.time.LocalDate;
+
+// A booking of one vehicle for a customer from start to end, both days included.
+public class Reservation {
+    private final long id;
+    private final Vehicle vehicle;
+    private final Customer customer;
+    private final LocalDate start;
+    private final LocalDate end;
+
+    public Reservation(long id, Vehicle vehicle, Customer customer, LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("Reservation ends before it starts: " + start + " to " + end);
+        }
+        this.id = id;
+        this.vehicle = vehicle;
+        this.customer = customer;
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public boolean covers(LocalDate date) {
+        return !date.isBefore(start) && !date.isAfter(end);
+    }
+
+    @Override
+    public String toString() {
+        return "Reservation " + id + " | Plate: " + vehicle.getLicensePlate() +
+               " | Customer: " + customer.getCustomerName() +
+               " | " + start + " to " + end;
+    }
+}
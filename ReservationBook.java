@@ -0,0 +1,131 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Future bookings per vehicle. Each vehicle's reservations never overlap, so they
+// are kept in a map sorted by start day: the only one that can clash with [from, to]
+// is the last one starting on or before to, which makes a conflict check O(log n)
+// in that vehicle's bookings. Checking and booking happen under the vehicle's
+// schedule lock, so two concurrent bookings of overlapping dates cannot both succeed.
+// Vehicles that were never booked have no schedule and are free for any dates.
+public class ReservationBook {
+
+    private static class Schedule {
+        // start epoch day -> reservation
+        private final TreeMap<Long, Reservation> byStart = new TreeMap<>();
+
+        synchronized boolean isFree(long from, long to) {
+            Map.Entry<Long, Reservation> before = byStart.floorEntry(to);
+            return before == null || before.getValue().getEnd().toEpochDay() < from;
+        }
+
+        synchronized boolean add(Reservation r) {
+            if (!isFree(r.getStart().toEpochDay(), r.getEnd().toEpochDay())) {
+                return false;
+            }
+            byStart.put(r.getStart().toEpochDay(), r);
+            return true;
+        }
+
+        synchronized boolean remove(Reservation r) {
+            return byStart.remove(r.getStart().toEpochDay(), r);
+        }
+
+        synchronized Reservation find(long day) {
+            Map.Entry<Long, Reservation> before = byStart.floorEntry(day);
+            if (before == null || before.getValue().getEnd().toEpochDay() < day) {
+                return null;
+            }
+            return before.getValue();
+        }
+
+        synchronized List<Reservation> list() {
+            return new ArrayList<>(byStart.values());
+        }
+    }
+
+    private final Map<Vehicle, Schedule> schedules = new ConcurrentHashMap<>();
+    private final Map<Long, Reservation> byId = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    // the new reservation, or null if the vehicle is already booked on any of the days
+    public Reservation reserve(Vehicle vehicle, Customer customer, LocalDate start, LocalDate end) {
+        Reservation r = new Reservation(lastId.incrementAndGet(), vehicle, customer, start, end);
+        return add(r) ? r : null;
+    }
+
+    // re-adds a reservation loaded from disk, keeping its id
+    public boolean restore(Reservation r) {
+        lastId.accumulateAndGet(r.getId(), Math::max);
+        return add(r);
+    }
+
+    private boolean add(Reservation r) {
+        Schedule schedule = schedules.computeIfAbsent(r.getVehicle(), v -> new Schedule());
+        if (!schedule.add(r)) {
+            return false;
+        }
+        byId.put(r.getId(), r);
+        return true;
+    }
+
+    public boolean cancel(Reservation r) {
+        Schedule schedule = schedules.get(r.getVehicle());
+        if (schedule == null || !schedule.remove(r)) {
+            return false;
+        }
+        byId.remove(r.getId());
+        return true;
+    }
+
+    public Reservation find(long id) {
+        return byId.get(id);
+    }
+
+    // the reservation of the vehicle covering date, or null
+    public Reservation find(Vehicle vehicle, LocalDate date) {
+        Schedule schedule = schedules.get(vehicle);
+        return schedule == null ? null : schedule.find(date.toEpochDay());
+    }
+
+    public boolean isFree(Vehicle vehicle, LocalDate from, LocalDate to) {
+        Schedule schedule = schedules.get(vehicle);
+        return schedule == null || schedule.isFree(from.toEpochDay(), to.toEpochDay());
+    }
+
+    // the candidates with no reservation touching [from, to], in the candidates' order
+    public List<Vehicle> findFree(Iterable<Vehicle> candidates, LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        List<Vehicle> free = new ArrayList<>();
+        for (Vehicle v : candidates) {
+            Schedule schedule = schedules.get(v);
+            if (schedule == null || schedule.isFree(fromDay, toDay)) {
+                free.add(v);
+            }
+        }
+        return free;
+    }
+
+    // the vehicle's reservations by start date
+    public List<Reservation> getReservations(Vehicle vehicle) {
+        Schedule schedule = schedules.get(vehicle);
+        return schedule == null ? new ArrayList<>() : schedule.list();
+    }
+
+    // every reservation, by id
+    public List<Reservation> getAll() {
+        List<Reservation> all = new ArrayList<>(byId.values());
+        all.sort(Comparator.comparingLong(Reservation::getId));
+        return all;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Compacted snapshot of vehicles (with their status at the time) and customers.
+// Written to a temp file, fsynced and renamed over the old snapshot, so a reader
+// always sees either the previous snapshot or the complete new one.
+//
+//   SNAPSHOT,<version>,<generation>,<journal sequence>
+//   VEHICLES,<count>      followed by vehicles.txt lines
+//   CUSTOMERS,<count>     followed by customers.txt lines
+//   END
+public class SnapshotStore {
+
+    private static final int VERSION = 1;
+
+    public static class Header {
+        public final int generation;
+        public final long journalSequence;
+
+        Header(int generation, long journalSequence) {
+            this.generation = generation;
+            this.journalSequence = journalSequence;
+        }
+    }
+
+    private final Path path;
+
+    public SnapshotStore(String path) {
+        this.path = Paths.get(path);
+    }
+
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    // The first statuses.length vehicles, each with the status at that index (taken
+    // when the snapshot's state was captured), and the first customerCount customers.
+    public void write(int generation, long journalSequence, List<Vehicle> vehicles,
+                      Vehicle.VehicleStatus[] statuses, List<Customer> customers,
+                      int customerCount) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    Channels.newOutputStream(channel), StandardCharsets.UTF_8), 64 * 1024);
+            int vehicleCount = statuses.length;
+            out.write("SNAPSHOT," + VERSION + "," + generation + "," + journalSequence);
+            out.newLine();
+            out.write("VEHICLES," + vehicleCount);
+            out.newLine();
+            for (int i = 0; i < vehicleCount; i++) {
+                out.write(CsvFormat.formatVehicle(vehicles.get(i), statuses[i]));
+                out.newLine();
+            }
+            out.write("CUSTOMERS," + customerCount);
+            out.newLine();
+            for (int i = 0; i < customerCount; i++) {
+                out.write(CsvFormat.formatCustomer(customers.get(i)));
+                out.newLine();
+            }
+            out.write("END");
+            out.newLine();
+            out.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Streams the snapshot's vehicle and customer lines to the sinks; returns null if there is none.
+    public Header read(Consumer<String> vehicleLines, Consumer<String> customerLines) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String[] head = in.readLine().split(",");
+            if (!"SNAPSHOT".equals(head[0]) || Integer.parseInt(head[1]) != VERSION) {
+                throw new IOException("Unsupported snapshot header in " + path);
+            }
+            Header header = new Header(Integer.parseInt(head[2]), Long.parseLong(head[3]));
+
+            int vehicleCount = Integer.parseInt(in.readLine().substring("VEHICLES,".length()));
+            for (int i = 0; i < vehicleCount; i++) {
+                vehicleLines.accept(in.readLine());
+            }
+            int customerCount = Integer.parseInt(in.readLine().substring("CUSTOMERS,".length()));
+            for (int i = 0; i < customerCount; i++) {
+                customerLines.accept(in.readLine());
+            }
+            if (!"END".equals(in.readLine())) {
+                throw new IOException("Truncated snapshot " + path);
+            }
+            return header;
+        }
+    }
+}
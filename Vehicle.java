@@ -1,9 +1,12 @@
 public abstract class Vehicle {
-    private String licensePlate;
+    private LicensePlate licensePlate;
     private String make;
     private String model;
     private int year;
-    private VehicleStatus status;
+    private volatile VehicleStatus status;
+    // set when the vehicle joins a VehicleRegistry, whose index then follows its status
+    private AvailabilityIndex availability;
+    private int registryOrdinal = -1;
 
     public enum VehicleStatus { Available, Held, Rented, UnderMaintenance, OutOfService }
 
@@ -15,12 +18,9 @@ public abstract class Vehicle {
         this.licensePlate = null;
     }
     
+    // shared instance from MakeModelDictionary, so equal makes/models are one String
     protected String capitalize(String s) {
-        if (s == null || s.isEmpty()) {
-            return null;
-        }
-        s = s.trim().toLowerCase();
-        return s.substring(0, 1).toUpperCase() + s.substring(1);
+        return MakeModelDictionary.canonical(s);
     }
 
 
@@ -29,24 +29,42 @@ public abstract class Vehicle {
     }
 
     public void setLicensePlate(String plate) {
-        if (!isValidPlate(plate)) {
-            throw new IllegalArgumentException("Invalid license plate: " + plate);
-        }
-        this.licensePlate = plate.toUpperCase();
+        this.licensePlate = LicensePlate.of(plate);
     }
 
     public static boolean isValidPlate(String plate) {
-        if (plate == null) return false;
-        String trimmed = plate.trim();
-
-        return trimmed.matches("[A-Za-z0-9]{2,8}");
+        return LicensePlate.isValid(plate);
     }
 
     public void setStatus(VehicleStatus status) {
-    	this.status = status;
+        synchronized (this) {
+            VehicleStatus old = this.status;
+            this.status = status;
+            if (availability != null && old != status) {
+                availability.moved(this, old, status);
+            }
+        }
+    }
+
+    // a vehicle is indexed by one registry at a time; joining another leaves the old index
+    void register(AvailabilityIndex index, int ordinal) {
+        synchronized (this) {
+            if (availability != null) {
+                availability.remove(this, status);
+            }
+            availability = index;
+            registryOrdinal = ordinal;
+            index.add(this, status);
+        }
     }
 
-    public String getLicensePlate() { return licensePlate; }
+    int getRegistryOrdinal() {
+        return registryOrdinal;
+    }
+
+    public String getLicensePlate() { return licensePlate == null ? null : licensePlate.toString(); }
+
+    public LicensePlate getPlate() { return licensePlate; }
 
     public String getMake() { return make; }
 
@@ -0,0 +1,97 @@
+// Search criteria for VehicleSearch. Unset criteria match everything; set ones
+// must all hold. Ranges are inclusive. Seats only exist on cars (and sport cars),
+// accessibility on minibuses and trailers and cargo on pickups, so criteria on
+// those match only vehicles of that kind, except accessible(false) and
+// trailer(false), which match every vehicle without the feature. A type matches
+// only vehicles of exactly that VehicleType (VehicleType.of), so CAR excludes sport
+// cars; query SPORT_CAR separately, or use a seat range, which covers both.
+//
+//   new VehicleQuery().type(VehicleType.MINIBUS).accessible(true)
+//           .minYear(2020).status(Vehicle.VehicleStatus.Available)
+public class VehicleQuery {
+    VehicleType type;
+    Vehicle.VehicleStatus status;
+    Boolean accessible;
+    Boolean trailer;
+    Integer minYear;
+    Integer maxYear;
+    Integer minSeats;
+    Integer maxSeats;
+    Double minCargo;
+    Double maxCargo;
+
+    public VehicleQuery type(VehicleType type) {
+        this.type = type;
+        return this;
+    }
+
+    public VehicleQuery status(Vehicle.VehicleStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public VehicleQuery accessible(boolean accessible) {
+        this.accessible = accessible;
+        return this;
+    }
+
+    public VehicleQuery trailer(boolean trailer) {
+        this.trailer = trailer;
+        return this;
+    }
+
+    public VehicleQuery minYear(int year) {
+        this.minYear = year;
+        return this;
+    }
+
+    public VehicleQuery maxYear(int year) {
+        this.maxYear = year;
+        return this;
+    }
+
+    public VehicleQuery minSeats(int seats) {
+        this.minSeats = seats;
+        return this;
+    }
+
+    public VehicleQuery maxSeats(int seats) {
+        this.maxSeats = seats;
+        return this;
+    }
+
+    public VehicleQuery minCargo(double cargo) {
+        this.minCargo = cargo;
+        return this;
+    }
+
+    public VehicleQuery maxCargo(double cargo) {
+        this.maxCargo = cargo;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("VehicleQuery[");
+        append(sb, "type", type);
+        append(sb, "status", status);
+        append(sb, "accessible", accessible);
+        append(sb, "trailer", trailer);
+        append(sb, "minYear", minYear);
+        append(sb, "maxYear", maxYear);
+        append(sb, "minSeats", minSeats);
+        append(sb, "maxSeats", maxSeats);
+        append(sb, "minCargo", minCargo);
+        append(sb, "maxCargo", maxCargo);
+        return sb.append(']').toString();
+    }
+
+    private static void append(StringBuilder sb, String name, Object value) {
+        if (value != null) {
+            if (sb.charAt(sb.length() - 1) != '[') {
+                sb.append(", ");
+            }
+            sb.append(name).append('=').append(value);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+public class VehicleRegistry {
+    // open-addressing table keyed by the packed plate (see LicensePlate), so a lookup
+    // neither upper-cases nor allocates
+    private long[] keys = new long[16];
+    private Vehicle[] values = new Vehicle[16];
+    private int count;
+    private final AppendOnlyList<Vehicle> vehicles = new AppendOnlyList<>();
+    private final AvailabilityIndex availability = new AvailabilityIndex();
+    private final VehicleSearch search = new VehicleSearch(vehicles, availability);
+    // lookups are optimistic and only fall back to a read lock if an add raced with them
+    private final StampedLock lock = new StampedLock();
+
+    public boolean add(Vehicle vehicle) {
+        LicensePlate plate = vehicle.getPlate();
+        if (plate == null) {
+            return false;
+        }
+        long key = plate.getPacked();
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotFor(keys, values, key);
+            if (values[slot] != null) {
+                return false;
+            }
+            keys[slot] = key;
+            values[slot] = vehicle;
+            count++;
+            int ordinal = vehicles.size();
+            vehicle.register(availability, ordinal);
+            vehicles.append(vehicle);
+            search.add(vehicle, ordinal);
+            if (count * 2 > keys.length) {
+                resize();
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Vehicle find(String plate) {
+        return find(LicensePlate.pack(plate));
+    }
+
+    public Vehicle find(long packedPlate) {
+        if (packedPlate == LicensePlate.INVALID) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long[] k = keys;
+            Vehicle[] v = values;
+            // k and v may be from different tables mid-resize; validate() catches that
+            if (k.length == v.length) {
+                Vehicle found = v[slotFor(k, v, packedPlate)];
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return values[slotFor(keys, values, packedPlate)];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(String plate) {
+        return find(plate) != null;
+    }
+
+    public int size() {
+        return vehicles.size();
+    }
+
+    public AvailabilityIndex getAvailability() {
+        return availability;
+    }
+
+    public VehicleSearch getSearch() {
+        return search;
+    }
+
+    public List<Vehicle> asList() {
+        return Collections.unmodifiableList(vehicles);
+    }
+
+    // returns the slot holding key, or the empty slot where it would go
+    private static int slotFor(long[] keys, Vehicle[] values, long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Vehicle[] oldValues = values;
+        long[] newKeys = new long[oldKeys.length * 2];
+        Vehicle[] newValues = new Vehicle[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotFor(newKeys, newValues, oldKeys[i]);
+                newKeys[slot] = oldKeys[i];
+                newValues[slot] = oldValues[i];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
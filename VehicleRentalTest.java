@@ -81,5 +81,1450 @@ public class VehicleRentalTest {
         RentalSystem r2 = RentalSystem.getInstance();
         assertSame(r1, r2);
     }
-}
 
+    // 8) history indexes: plate, customer and date-range queries
+    @Test
+    void testRentalHistoryIndexes() {
+        RentalHistory history = new RentalHistory();
+        Car car = new Car("toyota", "corolla", 2020, 5);
+        car.setLicensePlate("HX1001");
+        Minibus bus = new Minibus("ford", "transit", 2019, true);
+        bus.setLicensePlate("HX1002");
+        Customer alice = new Customer(11, "Alice Smith");
+        Customer bob = new Customer(12, "Bob Jones");
+
+        java.time.LocalDate d = java.time.LocalDate.of(2024, 1, 10);
+        history.addRecord(new RentalRecord(car, alice, d, 100.0, "RENT"));
+        history.addRecord(new RentalRecord(bus, bob, d.plusDays(1), 80.0, "RENT"));
+        history.addRecord(new RentalRecord(car, alice, d.plusDays(3), 10.0, "RETURN"));
+        history.addRecord(new RentalRecord(bus, bob, d.minusDays(2), 5.0, "RETURN"));
+
+        assertEquals(2, history.getRentalRecordsByVehicle("hx1001").size());
+        assertEquals(2, history.getRentalRecordsByCustomerId(12).size());
+        assertEquals(2, history.getRentalRecordsByCustomer("alice").size());
+        assertEquals(4, history.getRentalRecordsByCustomer("name").size());
+        assertEquals(2, history.getRentalRecordsByCustomerNameToken("Smith").size());
+        assertEquals(0, history.getRentalRecordsByCustomerNameToken("smi").size());
+
+        java.util.List<RentalRecord> range = history.getRentalRecordsBetween(d.minusDays(2), d.plusDays(1));
+        assertEquals(3, range.size());
+        assertEquals(d.minusDays(2), range.get(0).getRecordDate());
+        assertEquals(d.plusDays(1), range.get(2).getRecordDate());
+    }
+
+    // 9) concurrent rents of one vehicle: exactly one counter wins
+    @Test
+    void testConcurrentRentNoDoubleRental() throws Exception {
+        RentalSystem rs = RentalSystem.getInstance();
+        Car car = new Car("mazda", "3", 2022, 5);
+        car.setLicensePlate("MT0001");
+        Customer cust = new Customer(901, "Stress");
+        assertTrue(rs.addVehicle(car));
+        assertTrue(rs.addCustomer(cust));
+
+        int threads = 16;
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.atomic.AtomicInteger wins = new java.util.concurrent.atomic.AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (rs.rentVehicle(car, cust, java.time.LocalDate.now(), 50.0)) {
+                    wins.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, java.util.concurrent.TimeUnit.SECONDS));
+        assertEquals(1, wins.get());
+        assertEquals(1, rs.getRentalHistory().getRentalRecordsByVehicle("MT0001").size());
+    }
+
+    // 10) many threads renting/returning a small fleet: history per vehicle strictly alternates
+    @Test
+    void testConcurrentRentReturnHistoryAlternates() throws Exception {
+        RentalSystem rs = RentalSystem.getInstance();
+        Car[] cars = new Car[4];
+        for (int i = 0; i < cars.length; i++) {
+            cars[i] = new Car("kia", "rio", 2021, 5);
+            cars[i].setLicensePlate("MT1" + i);
+            assertTrue(rs.addVehicle(cars[i]));
+        }
+        Customer cust = new Customer(902, "Stress Two");
+        assertTrue(rs.addCustomer(cust));
+
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            pool.submit(() -> {
+                java.util.Random random = new java.util.Random(seed);
+                for (int i = 0; i < 200; i++) {
+                    Car car = cars[random.nextInt(cars.length)];
+                    if (random.nextBoolean()) {
+                        rs.rentVehicle(car, cust, java.time.LocalDate.now(), 10.0);
+                    } else {
+                        rs.returnVehicle(car, cust, java.time.LocalDate.now(), 0.0);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, java.util.concurrent.TimeUnit.SECONDS));
+
+        for (Car car : cars) {
+            String expected = "RENT";
+            for (RentalRecord record : rs.getRentalHistory().getRentalRecordsByVehicle(car.getLicensePlate())) {
+                assertEquals(expected, record.getRecordType());
+                expected = "RENT".equals(expected) ? "RETURN" : "RENT";
+            }
+            Vehicle.VehicleStatus status = "RENT".equals(expected)
+                    ? Vehicle.VehicleStatus.Available : Vehicle.VehicleStatus.Rented;
+            assertEquals(status, car.getStatus());
+        }
+    }
+
+    // 11) memory-mapped loader parses the same values as split/parse
+    @Test
+    void testMappedRecordLoaderMatchesLineParsing() throws Exception {
+        Car car = new Car("toyota", "yaris", 2019, 4);
+        car.setLicensePlate("MM0001");
+        Customer cust = new Customer(77, "Mapped");
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("records", ".txt");
+        java.nio.file.Files.writeString(file,
+                "RENT,mm0001,77,2024-03-01,100.0\n" +
+                "short,line\n" +
+                "RETURN,MM0001,77,2024-03-05,12.345\r\n" +
+                "RENT,MM0001,78,2024-03-06,1.0E7\n" +
+                "RETURN,MM0001,77,2024-03-09,0.1,extra");
+
+        java.util.List<RentalRecord> loaded = new java.util.ArrayList<>();
+        new MappedRecordLoader(p -> p == LicensePlate.pack("MM0001") ? car : null,
+                id -> id == 77 ? cust : null).load(file, loaded::add);
+        java.nio.file.Files.delete(file);
+
+        assertEquals(3, loaded.size());
+        assertEquals("RENT", loaded.get(0).getRecordType());
+        assertEquals(java.time.LocalDate.of(2024, 3, 5), loaded.get(1).getRecordDate());
+        assertEquals(Double.parseDouble("12.345"), loaded.get(1).getTotalAmount());
+        assertEquals(Double.parseDouble("0.1"), loaded.get(2).getTotalAmount());
+    }
+
+    // 12) binary store round-trips every vehicle type, comma names and amounts in cents
+    @Test
+    void testBinaryStoreRoundTrip() throws Exception {
+        SportCar sport = new SportCar("porsche", "911", 2023, 2, 443, true);
+        sport.setLicensePlate("BN0001");
+        Minibus bus = new Minibus("ford", "transit", 2020, true);
+        bus.setLicensePlate("BN0002");
+        PickupTruck truck = new PickupTruck("ram", "1500", 2021, 6.5, true);
+        truck.setLicensePlate("BN0003");
+        truck.setStatus(Vehicle.VehicleStatus.Rented);
+        Customer cust = new Customer(5, "Smith, Jane");
+
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("binstore");
+        java.nio.file.Path vFile = dir.resolve(BinaryStore.VEHICLE_FILE);
+        java.nio.file.Path cFile = dir.resolve(BinaryStore.CUSTOMER_FILE);
+        java.nio.file.Path rFile = dir.resolve(BinaryStore.RECORD_FILE);
+        BinaryStore.writeVehicles(vFile, java.util.List.of(sport, bus, truck));
+        BinaryStore.writeCustomers(cFile, java.util.List.of(cust));
+        BinaryStore.writeRecords(rFile, java.util.List.of(
+                new RentalRecord(truck, cust, java.time.LocalDate.of(2024, 5, 1), 149.99, "RENT")));
+
+        java.util.List<Vehicle> vehicles = BinaryStore.readVehicles(vFile);
+        SportCar sport2 = (SportCar) vehicles.get(0);
+        assertEquals(443, sport2.getHorsepower());
+        assertTrue(sport2.hasTurbo());
+        assertTrue(((Minibus) vehicles.get(1)).isAccessible());
+        PickupTruck truck2 = (PickupTruck) vehicles.get(2);
+        assertEquals(6.5, truck2.getCargoSize());
+        assertEquals(Vehicle.VehicleStatus.Rented, truck2.getStatus());
+        assertEquals("BN0003", truck2.getLicensePlate());
+        assertEquals("Smith, Jane", BinaryStore.readCustomers(cFile).get(0).getCustomerName());
+
+        java.util.List<RentalRecord> records = new java.util.ArrayList<>();
+        BinaryStore.readRecords(rFile, p -> p == LicensePlate.pack("BN0003") ? truck2 : null, id -> cust, records::add);
+        assertEquals(1, records.size());
+        assertEquals(149.99, records.get(0).getTotalAmount());
+        assertEquals(java.time.LocalDate.of(2024, 5, 1), records.get(0).getRecordDate());
+
+        // more than one write buffer of rows and strings streams through intact
+        java.util.List<Customer> many = new java.util.ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            many.add(new Customer(i, "Customer number " + i));
+        }
+        BinaryStore.writeCustomers(cFile, many);
+        java.util.List<Customer> many2 = BinaryStore.readCustomers(cFile);
+        assertEquals(20_000, many2.size());
+        assertEquals("Customer number 19999", many2.get(19_999).getCustomerName());
+
+        // string lengths are stored as shorts
+        String longName = "x".repeat(Short.MAX_VALUE + 1);
+        assertThrows(java.io.IOException.class,
+                () -> BinaryStore.writeCustomers(cFile, java.util.List.of(new Customer(1, longName))));
+    }
+
+    // 13) columnar history answers the same queries as the object-backed one
+    @Test
+    void testColumnarHistoryMatchesRentalHistory() {
+        RentalHistory rows = new RentalHistory();
+        ColumnarRentalHistory columns = new ColumnarRentalHistory();
+        Car car = new Car("honda", "civic", 2021, 5);
+        car.setLicensePlate("CL0001");
+        PickupTruck truck = new PickupTruck("ford", "f150", 2020, 5.5, false);
+        truck.setLicensePlate("CL0002");
+        Customer ann = new Customer(21, "Ann Lee");
+        Customer ben = new Customer(22, "Ben Lee-Park");
+
+        java.time.LocalDate d = java.time.LocalDate.of(2024, 3, 1);
+        for (int i = 0; i < 3000; i++) {
+            RentalRecord r = new RentalRecord(i % 2 == 0 ? car : truck, i % 3 == 0 ? ann : ben,
+                    d.plusDays(i % 17), (i % 500) * 1.25, i % 2 == 0 ? "RENT" : "RETURN");
+            rows.addRecord(r);
+            columns.addRecord(r);
+        }
+
+        assertEquals(rows.getRentalHistory().size(), columns.getRentalHistory().size());
+        assertSameRecords(rows.getRentalRecordsByVehicle("cl0002"), columns.getRentalRecordsByVehicle("cl0002"));
+        assertSameRecords(rows.getRentalRecordsByCustomerId(21), columns.getRentalRecordsByCustomerId(21));
+        assertSameRecords(rows.getRentalRecordsByCustomer("lee"), columns.getRentalRecordsByCustomer("lee"));
+        assertSameRecords(rows.getRentalRecordsByCustomerNameToken("Lee"),
+                columns.getRentalRecordsByCustomerNameToken("Lee"));
+        assertSameRecords(rows.getRentalRecordsBetween(d.plusDays(3), d.plusDays(9)),
+                columns.getRentalRecordsBetween(d.plusDays(3), d.plusDays(9)));
+        assertEquals(rows.getFirstRecordDate(), columns.getFirstRecordDate());
+        assertEquals(rows.getLastRecordDate(), columns.getLastRecordDate());
+        assertSame(truck, columns.getRentalHistory().get(1).getVehicle());
+    }
+
+    private static void assertSameRecords(java.util.List<RentalRecord> expected, java.util.List<RentalRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    // 14) plates validate without regex, canonicalise and pack into a long
+    @Test
+    void testLicensePlatePacking() {
+        assertTrue(Vehicle.isValidPlate(" ab12 "));
+        assertFalse(Vehicle.isValidPlate("A"));
+        assertFalse(Vehicle.isValidPlate("ABCDEFGHI"));
+        assertFalse(Vehicle.isValidPlate("AB-12"));
+        assertFalse(Vehicle.isValidPlate(null));
+
+        LicensePlate plate = LicensePlate.of("ab12");
+        assertEquals("AB12", plate.toString());
+        assertEquals(plate, LicensePlate.fromPacked(LicensePlate.pack(" AB12")));
+        assertEquals(LicensePlate.INVALID, LicensePlate.pack("AB 12"));
+        assertTrue(LicensePlate.of("AB12").compareTo(LicensePlate.of("AB123")) < 0);
+        assertTrue(LicensePlate.of("ZZ").compareTo(LicensePlate.of("AB123456")) > 0);
+
+        VehicleRegistry registry = new VehicleRegistry();
+        Car car = new Car("kia", "rio", 2022, 5);
+        car.setLicensePlate("lp0001");
+        assertTrue(registry.add(car));
+        assertSame(car, registry.find("Lp0001"));
+        assertSame(car, registry.find(LicensePlate.pack("LP0001")));
+        assertNull(registry.find("LP0002"));
+    }
+
+    // 15) makes/models are capitalised into shared instances, not one copy per vehicle
+    @Test
+    void testMakeModelStringsAreShared() {
+        String[] makes = {"toyota", "HONDA", "  ford ", "Mazda"};
+        String[] models = {"corolla", "civic", "focus", "mazda3", "ranger", "CX5"};
+        int fleet = 200_000;
+        java.util.Set<String> distinct = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+        for (int i = 0; i < fleet; i++) {
+            // fresh String objects, as a file loader would produce
+            String make = new String(makes[i % makes.length].toCharArray());
+            String model = new String(models[i % models.length].toCharArray());
+            Car car = new Car(make, model, 2020, 5);
+            distinct.add(car.getMake());
+            distinct.add(car.getModel());
+        }
+        // 2 * fleet String instances before, 10 now: about 200_000 * 2 * 48 bytes saved
+        assertEquals(makes.length + models.length, distinct.size());
+        assertSame(new Car("TOYOTA", "x", 2020, 4).getMake(), new Car(" toyota", "x", 2020, 4).getMake());
+        assertEquals("Ford", new Car("  ford ", "x", 2020, 4).getMake());
+        assertEquals("Cx5", new Car("ford", "CX5", 2020, 4).getModel());
+        assertNull(new Car("", "x", 2020, 4).getMake());
+    }
+
+    // 16) availability index follows every status change and counts per status and type
+    @Test
+    void testAvailabilityIndexTracksStatus() {
+        VehicleRegistry registry = new VehicleRegistry();
+        AvailabilityIndex index = registry.getAvailability();
+        Minibus bus = new Minibus("ford", "transit", 2020, true);
+        bus.setLicensePlate("AV0001");
+        Car car = new Car("kia", "rio", 2021, 5);
+        car.setLicensePlate("AV0002");
+        car.setStatus(Vehicle.VehicleStatus.UnderMaintenance);
+        Car car2 = new Car("kia", "ceed", 2022, 5);
+        car2.setLicensePlate("AV0003");
+        registry.add(bus);
+        registry.add(car);
+        registry.add(car2);
+
+        assertEquals(2, index.count(Vehicle.VehicleStatus.Available));
+        assertEquals(1, index.count(Vehicle.VehicleStatus.UnderMaintenance, VehicleType.CAR));
+        assertSame(bus, index.findFirst(Vehicle.VehicleStatus.Available, VehicleType.MINIBUS));
+
+        bus.setStatus(Vehicle.VehicleStatus.Rented);
+        assertNull(index.findFirst(Vehicle.VehicleStatus.Available, VehicleType.MINIBUS));
+        assertEquals(1, index.count(Vehicle.VehicleStatus.Rented));
+        car.setStatus(Vehicle.VehicleStatus.Available);
+        assertEquals(java.util.List.of(car, car2),
+                new java.util.ArrayList<>(index.vehicles(Vehicle.VehicleStatus.Available)));
+        assertEquals(0, index.count(Vehicle.VehicleStatus.UnderMaintenance));
+    }
+
+    // 17) multi-attribute search agrees with a plain filter over the fleet
+    @Test
+    void testVehicleSearchMatchesLinearScan() {
+        VehicleRegistry registry = new VehicleRegistry();
+        java.util.List<Vehicle> fleet = new java.util.ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Vehicle v;
+            if (i % 4 == 0) {
+                v = new Car("toyota", "corolla", 2010 + i % 15, 2 + i % 7);
+            } else if (i % 4 == 1) {
+                v = new SportCar("porsche", "911", 2010 + i % 15, 2 + i % 3, 400 + i % 100, i % 2 == 0);
+            } else if (i % 4 == 2) {
+                v = new Minibus("ford", "transit", 2010 + i % 15, i % 3 == 1);
+            } else {
+                v = new PickupTruck("ram", "1500", 2010 + i % 15, 1 + i % 9, i % 5 == 0);
+            }
+            v.setLicensePlate(String.format("VS%04d", i));
+            registry.add(v);
+            fleet.add(v);
+            if (i % 7 == 0) {
+                v.setStatus(Vehicle.VehicleStatus.Rented);
+            }
+        }
+
+        java.util.List<Vehicle> expected = new java.util.ArrayList<>();
+        for (Vehicle v : fleet) {
+            if (v instanceof Minibus && ((Minibus) v).isAccessible() && v.getYear() >= 2020
+                    && v.getStatus() == Vehicle.VehicleStatus.Available) {
+                expected.add(v);
+            }
+        }
+        assertEquals(expected, registry.getSearch().search(new VehicleQuery().type(VehicleType.MINIBUS)
+                .accessible(true).minYear(2020).status(Vehicle.VehicleStatus.Available)));
+
+        expected.clear();
+        for (Vehicle v : fleet) {
+            if (v instanceof PickupTruck && ((PickupTruck) v).hasTrailer() && ((PickupTruck) v).getCargoSize() >= 5) {
+                expected.add(v);
+            }
+        }
+        assertEquals(expected, registry.getSearch().search(new VehicleQuery().trailer(true).minCargo(5)));
+
+        expected.clear();
+        for (Vehicle v : fleet) {
+            if (VehicleType.of(v) == VehicleType.CAR && ((Car) v).getNumSeats() >= 4) {
+                expected.add(v);
+            }
+        }
+        // CAR is exactly Car; a seat range alone also finds sport cars
+        VehicleQuery cars = new VehicleQuery().type(VehicleType.CAR).minSeats(4);
+        assertEquals(expected, registry.getSearch().search(cars));
+        assertEquals(expected.size(), registry.getSearch().count(cars));
+
+        expected.clear();
+        for (Vehicle v : fleet) {
+            if (v instanceof Car && ((Car) v).getNumSeats() >= 4) {
+                expected.add(v);
+            }
+        }
+        assertTrue(expected.stream().anyMatch(v -> v instanceof SportCar));
+        assertEquals(expected, registry.getSearch().search(new VehicleQuery().minSeats(4)));
+
+        expected.clear();
+        for (Vehicle v : fleet) {
+            if (v instanceof SportCar && v.getStatus() == Vehicle.VehicleStatus.Rented) {
+                expected.add(v);
+            }
+        }
+        VehicleQuery rentedSport = new VehicleQuery().type(VehicleType.SPORT_CAR).status(Vehicle.VehicleStatus.Rented);
+        assertEquals(expected, registry.getSearch().search(rentedSport));
+        assertEquals(expected.size(), registry.getSearch().count(rentedSport));
+        assertEquals(500, registry.getSearch().count(new VehicleQuery().type(VehicleType.SPORT_CAR)));
+        assertEquals(2000, registry.getSearch().count(new VehicleQuery()));
+        assertEquals(0, registry.getSearch().count(new VehicleQuery().minYear(2030)));
+    }
+
+    // 18) reservations: overlapping bookings conflict, even when made concurrently
+    @Test
+    void testReservationsDetectConflicts() throws Exception {
+        RentalSystem rs = RentalSystem.getInstance();
+        Car car = new Car("skoda", "octavia", 2023, 5);
+        car.setLicensePlate("RS0001");
+        Car other = new Car("skoda", "fabia", 2023, 5);
+        other.setLicensePlate("RS0002");
+        Customer alice = new Customer(950, "Alice");
+        Customer bob = new Customer(951, "Bob");
+        assertTrue(rs.addVehicle(car));
+        assertTrue(rs.addVehicle(other));
+        assertTrue(rs.addCustomer(alice));
+        assertTrue(rs.addCustomer(bob));
+        java.time.LocalDate day = java.time.LocalDate.of(2030, 6, 10);
+
+        Reservation june = rs.reserveVehicle(car, alice, day, day.plusDays(4));
+        assertNotNull(june);
+        assertNull(rs.reserveVehicle(car, bob, day.plusDays(4), day.plusDays(6)));
+        assertNull(rs.reserveVehicle(car, bob, day.minusDays(2), day));
+        assertTrue(rs.reserveVehicle(car, bob, day.plusDays(5), day.plusDays(6)) != null);
+
+        java.util.List<Vehicle> free = rs.findFreeVehicles(day.plusDays(1), day.plusDays(2));
+        assertFalse(free.contains(car));
+        assertTrue(free.contains(other));
+        assertTrue(rs.findFreeVehicles(day.minusDays(5), day.minusDays(1)).contains(car));
+
+        // only the booking customer can rent on a booked day
+        assertFalse(rs.rentVehicle(car, bob, day, 80.0));
+        assertTrue(rs.rentVehicle(car, alice, day, 80.0));
+        assertTrue(rs.returnVehicle(car, alice, day.plusDays(4), 0.0));
+
+        assertTrue(rs.cancelReservation(june));
+        assertTrue(rs.findFreeVehicles(day.plusDays(1), day.plusDays(2)).contains(car));
+
+        // many threads booking random overlapping ranges: accepted bookings never overlap
+        ReservationBook book = new ReservationBook();
+        int threads = 8;
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            pool.submit(() -> {
+                java.util.Random random = new java.util.Random(seed);
+                start.await();
+                for (int i = 0; i < 2000; i++) {
+                    java.time.LocalDate from = day.plusDays(random.nextInt(365));
+                    book.reserve(other, bob, from, from.plusDays(random.nextInt(5)));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, java.util.concurrent.TimeUnit.SECONDS));
+        java.util.List<Reservation> booked = book.getReservations(other);
+        assertEquals(booked.size(), book.size());
+        for (int i = 1; i < booked.size(); i++) {
+            assertTrue(booked.get(i - 1).getEnd().isBefore(booked.get(i).getStart()));
+        }
+    }
+
+    // 19) batches: all-or-nothing applies nothing on one bad command, best-effort applies the rest
+    @Test
+    void testBatchRentReturn() {
+        RentalSystem rs = RentalSystem.getInstance();
+        Customer corp = new Customer(960, "Fleet Corp");
+        assertTrue(rs.addCustomer(corp));
+        PickupTruck[] trucks = new PickupTruck[3];
+        for (int i = 0; i < trucks.length; i++) {
+            trucks[i] = new PickupTruck("ford", "ranger", 2021, 3.5, false);
+            trucks[i].setLicensePlate("BT000" + i);
+            assertTrue(rs.addVehicle(trucks[i]));
+        }
+        java.time.LocalDate today = java.time.LocalDate.now();
+
+        // the second rent of trucks[0] fails, so nothing happens
+        RentalBatch.Result all = rs.applyBatch(new RentalBatch()
+                .rent(trucks[0], corp, today, 60.0)
+                .rent(trucks[1], corp, today, 60.0)
+                .rent(trucks[0], corp, today, 60.0), RentalBatch.Mode.ALL_OR_NOTHING);
+        assertEquals(0, all.getAppliedCount());
+        assertEquals(java.util.List.of(RentalBatch.Outcome.SKIPPED, RentalBatch.Outcome.SKIPPED,
+                RentalBatch.Outcome.NOT_AVAILABLE), all.getOutcomes());
+        assertEquals(Vehicle.VehicleStatus.Available, trucks[0].getStatus());
+        assertEquals(0, rs.getRentalHistory().getRentalRecordsByVehicle("BT0000").size());
+
+        RentalBatch.Result some = rs.applyBatch(new RentalBatch()
+                .rent(trucks[0], corp, today, 60.0)
+                .returnVehicle(trucks[1], corp, today, 0.0)
+                .rent(trucks[2], corp, today, 60.0)
+                .returnVehicle(trucks[2], corp, today, 5.0), RentalBatch.Mode.BEST_EFFORT);
+        assertEquals(3, some.getAppliedCount());
+        assertFalse(some.isFullyApplied());
+        assertEquals(RentalBatch.Outcome.NOT_RENTED, some.getOutcome(1));
+        assertEquals(Vehicle.VehicleStatus.Rented, trucks[0].getStatus());
+        assertEquals(Vehicle.VehicleStatus.Available, trucks[2].getStatus());
+        assertEquals(2, rs.getRentalHistory().getRentalRecordsByVehicle("BT0002").size());
+    }
+
+    // 20) async write queue: every line lands once, in submit order per producer, under back-pressure
+    @Test
+    void testPersistenceQueueWritesEverything() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("queue");
+        FileAppender a = new FileAppender(dir.resolve("a.txt").toString(), FileAppender.Durability.ON_SHUTDOWN, 10, 256);
+        FileAppender b = new FileAppender(dir.resolve("b.txt").toString(), FileAppender.Durability.ON_SHUTDOWN, 10, 256);
+        PersistenceQueue queue = new PersistenceQueue(8, PersistenceQueue.BackPressure.BLOCK, null);
+        assertEquals(8, queue.getCapacity());
+
+        int threads = 4;
+        int perThread = 5000;
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    queue.submit(id % 2 == 0 ? a : b, id + ":" + i);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, java.util.concurrent.TimeUnit.SECONDS));
+        queue.flush();
+        assertEquals(threads * perThread, queue.getDurableSequence());
+        assertEquals(0, queue.getQueueDepth());
+        assertTrue(queue.getPeakQueueDepth() <= 8);
+
+        int[] next = new int[threads];
+        int lines = 0;
+        for (String file : new String[] { "a.txt", "b.txt" }) {
+            for (String line : java.nio.file.Files.readAllLines(dir.resolve(file))) {
+                int id = Integer.parseInt(line.substring(0, line.indexOf(':')));
+                assertEquals(next[id]++, Integer.parseInt(line.substring(line.indexOf(':') + 1)));
+                lines++;
+            }
+        }
+        assertEquals(threads * perThread, lines);
+    }
+
+    // 21) HTTP endpoint: add, rent, conflicting rent, search and history through a local client
+    @Test
+    void testHttpServerEndpoints() throws Exception {
+        RentalHttpServer server = new RentalHttpServer(RentalSystem.getInstance());
+        server.start(0);
+        try {
+            String base = "http://localhost:" + server.getPort();
+            assertEquals(200, http("POST", base + "/vehicles",
+                    "{\"type\":\"MINIBUS\",\"plate\":\"HT0001\",\"make\":\"ford\",\"model\":\"transit\","
+                    + "\"year\":2024,\"accessible\":true}")[0]);
+            assertEquals(409, http("POST", base + "/vehicles",
+                    "type=CAR&plate=HT0001&make=kia&model=rio&year=2020&seats=5")[0]);
+            assertEquals(200, http("POST", base + "/customers", "{\"id\":970,\"name\":\"Terminal \\\"7\\\"\"}")[0]);
+
+            Object[] rent = http("POST", base + "/rent", "{\"plate\":\"ht0001\",\"customerId\":970,\"amount\":45.5}");
+            assertEquals(200, rent[0]);
+            assertTrue(((String) rent[1]).contains("\"status\":\"Rented\""));
+            assertEquals(409, http("POST", base + "/rent", "plate=HT0001&customerId=970&amount=45.5")[0]);
+            assertEquals(404, http("POST", base + "/rent", "plate=HT9999&customerId=970")[0]);
+            assertEquals(400, http("POST", base + "/rent", "plate=HT0001&customerId=abc")[0]);
+
+            Object[] search = http("GET", base + "/vehicles?type=MINIBUS&accessible=true&minYear=2024&status=Rented", null);
+            assertTrue(((String) search[1]).contains("\"plate\":\"HT0001\""));
+            Object[] history = http("GET", base + "/history?customerId=970", null);
+            assertTrue(((String) history[1]).startsWith("{\"count\":1,"));
+            assertTrue(((String) history[1]).contains("\"customer\":\"Terminal \\\"7\\\"\""));
+            assertEquals(405, http("GET", base + "/rent", null)[0]);
+        } finally {
+            server.stop();
+        }
+    }
+
+    // status code and body of one request
+    private static Object[] http(String method, String url, String body) throws Exception {
+        java.net.HttpURLConnection conn = (java.net.HttpURLConnection) new java.net.URL(url).openConnection();
+        conn.setRequestMethod(method);
+        if (body != null) {
+            conn.setDoOutput(true);
+            try (java.io.OutputStream out = conn.getOutputStream()) {
+                out.write(body.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            }
+        }
+        int status = conn.getResponseCode();
+        java.io.InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream();
+        String text = new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+        in.close();
+        return new Object[] { status, text };
+    }
+
+    // 22) analytics: running totals per add, and the parallel recomputation agrees with them
+    @Test
+    void testRentalAnalytics() {
+        RentalHistory history = new RentalHistory();
+        Car car = new Car("kia", "rio", 2021, 5);
+        car.setLicensePlate("RA0001");
+        PickupTruck truck = new PickupTruck("ram", "1500", 2020, 4, false);
+        truck.setLicensePlate("RA0002");
+        Customer ann = new Customer(1, "Ann");
+        Customer ben = new Customer(2, "Ben");
+        java.time.LocalDate d = java.time.LocalDate.of(2025, 3, 1);
+
+        history.addRecord(new RentalRecord(car, ann, d, 100.0, "RENT"));
+        history.addRecord(new RentalRecord(truck, ben, d, 60.0, "RENT"));
+        history.addRecord(new RentalRecord(car, ann, d.plusDays(4), 10.0, "RETURN"));
+        history.addRecord(new RentalRecord(truck, ben, d.plusDays(2), 0.0, "RETURN"));
+        history.addRecord(new RentalRecord(car, ben, d.plusDays(6), 150.0, "RENT"));
+
+        RentalAnalytics analytics = history.getAnalytics();
+        assertEquals(100.0, analytics.getRevenue(d, VehicleType.CAR));
+        assertEquals(60.0, analytics.getRevenue(d, VehicleType.PICKUP));
+        assertEquals(160.0, analytics.getRevenue(d));
+        assertEquals(260.0, analytics.getTotalRevenue(VehicleType.CAR));
+        assertEquals(3.0, analytics.getAverageRentalDays());
+        // 4 days returned + 2 days of the open rental, over 9 days since the first record
+        assertEquals(6 / 9.0, analytics.getUtilisation("ra0001", d.plusDays(8)));
+        assertEquals(0.0, analytics.getUtilisation("RA9999", d));
+        java.util.List<RentalAnalytics.CustomerSpend> top = analytics.getTopCustomers(5);
+        assertEquals(2, top.size());
+        assertSame(ben, top.get(0).getCustomer());
+        assertEquals(210.0, top.get(0).getAmount());
+
+        java.util.Random random = new java.util.Random(7);
+        java.util.List<RentalRecord> records = new java.util.ArrayList<>();
+        RentalHistory big = new RentalHistory();
+        Vehicle[] fleet = new Vehicle[50];
+        for (int v = 0; v < fleet.length; v++) {
+            fleet[v] = v % 2 == 0 ? new Car("kia", "rio", 2021, 5) : new Minibus("ford", "transit", 2020, true);
+            fleet[v].setLicensePlate(String.format("RB%04d", v));
+        }
+        Customer[] customers = new Customer[20];
+        for (int c = 0; c < customers.length; c++) {
+            customers[c] = new Customer(100 + c, "C" + c);
+        }
+        for (int i = 0; i < 5000; i++) {
+            Vehicle v = fleet[random.nextInt(fleet.length)];
+            boolean rent = big.getRentalRecordsByVehicle(v.getLicensePlate()).size() % 2 == 0;
+            RentalRecord r = new RentalRecord(v, customers[random.nextInt(customers.length)],
+                    d.plusDays(i / 20), random.nextInt(20000) / 100.0, rent ? "RENT" : "RETURN");
+            big.addRecord(r);
+            records.add(r);
+        }
+        RentalAnalytics computed = RentalAnalytics.compute(records);
+        RentalAnalytics running = big.getAnalytics();
+        assertEquals(running.getCompletedRentals(), computed.getCompletedRentals());
+        assertEquals(running.getAverageRentalDays(), computed.getAverageRentalDays());
+        assertEquals(running.getTotalRevenue(VehicleType.MINIBUS), computed.getTotalRevenue(VehicleType.MINIBUS));
+        assertEquals(running.getRevenue(d.plusDays(100)), computed.getRevenue(d.plusDays(100)));
+        assertEquals(running.getUtilisation("RB0007", d.plusDays(300)), computed.getUtilisation("RB0007", d.plusDays(300)));
+        assertEquals(running.getTopCustomers(3).toString(), computed.getTopCustomers(3).toString());
+    }
+
+    // 23) paging, seeking and streaming the history, in memory and from a file on disk
+    @Test
+    void testHistoryPagingAndStreaming() throws Exception {
+        Car car = new Car("kia", "rio", 2021, 5);
+        car.setLicensePlate("HP0001");
+        Customer cust = new Customer(980, "Pager");
+        java.time.LocalDate d = java.time.LocalDate.of(2025, 1, 1);
+        for (RentalHistory history : new RentalHistory[] { new RentalHistory(), new ColumnarRentalHistory() }) {
+            for (int i = 0; i < 250; i++) {
+                history.addRecord(new RentalRecord(car, cust, d.plusDays(i / 10), i, i % 2 == 0 ? "RENT" : "RETURN"));
+            }
+
+            HistoryPage page = history.getPage(0, 100);
+            assertEquals(100, page.getRecords().size());
+            assertTrue(page.hasMore());
+            page = history.getPage(page.getNextSequence() + 100, 100);
+            assertEquals(50, page.getRecords().size());
+            assertFalse(page.hasMore());
+            assertEquals(200.0, page.getRecords().get(0).getTotalAmount());
+
+            assertEquals(120, history.seek(d.plusDays(12)));
+            assertEquals(250, history.seek(d.plusDays(100)));
+            assertEquals(0, history.getPage(history.seek(d.plusDays(100)), 10).getRecords().size());
+
+            assertEquals(250, history.stream().count());
+            assertEquals(240.0, history.stream(240).findFirst().get().getTotalAmount());
+            assertEquals(history.getRentalRecordsBetween(d.plusDays(3), d.plusDays(5)).size(),
+                    history.streamBetween(d.plusDays(3), d.plusDays(5)).count());
+            assertEquals(30, history.streamBetween(d.plusDays(3), d.plusDays(5)).count());
+        }
+
+        RentalSystem rs = RentalSystem.getInstance();
+        rs.addVehicle(car);
+        rs.addCustomer(cust);
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("archive", ".txt");
+        java.nio.file.Files.write(file, java.util.List.of(
+                "RENT,HP0001,980,2025-02-01,40.0",
+                "RENT,ZZ9999,980,2025-02-01,40.0",
+                "RETURN,HP0001,980,2025-02-03,5.0"));
+        try (java.util.stream.Stream<RentalRecord> records = rs.streamRecordFile(file)) {
+            assertEquals(45.0, records.mapToDouble(RentalRecord::getTotalAmount).sum());
+        }
+    }
+
+    // 24) event bus, synchronous: adds, status changes, rents and returns arrive once each, in order
+    @Test
+    void testEventBusSynchronousSubscriber() {
+        RentalSystem rs = RentalSystem.getInstance();
+        java.util.List<String> events = new java.util.ArrayList<>();
+        RentalEventBus.Subscription subscription = rs.getEvents().subscribe(e -> events.add(e.getType() + " "
+                + (e.getVehicle() != null ? e.getVehicle().getLicensePlate() : e.getCustomer().getCustomerId())));
+        Minibus bus = new Minibus("vw", "crafter", 2022, true);
+        bus.setLicensePlate("LS0001");
+        Customer cust = new Customer(990, "Watcher");
+        assertTrue(rs.addVehicle(bus));
+        assertFalse(rs.addVehicle(bus)); // duplicate: no event
+        assertTrue(rs.addCustomer(cust));
+        assertTrue(rs.setVehicleStatus(bus, Vehicle.VehicleStatus.UnderMaintenance));
+        assertTrue(rs.setVehicleStatus(bus, Vehicle.VehicleStatus.Available));
+        assertFalse(rs.setVehicleStatus(bus, Vehicle.VehicleStatus.Rented));
+        assertTrue(rs.rentVehicle(bus, cust, java.time.LocalDate.now(), 70.0));
+        assertTrue(rs.returnVehicle(bus, cust, java.time.LocalDate.now(), 0.0));
+        subscription.cancel();
+        assertTrue(rs.rentVehicle(bus, cust, java.time.LocalDate.now(), 70.0));
+        assertEquals(java.util.List.of("VEHICLE_ADDED LS0001", "CUSTOMER_ADDED 990", "STATUS_CHANGED LS0001",
+                "STATUS_CHANGED LS0001", "RENTED LS0001", "RETURNED LS0001"), events);
+    }
+
+    // 25) event bus, asynchronous: a slow subscriber gets every event in batches, in order per vehicle
+    @Test
+    void testEventBusAsyncBatches() throws Exception {
+        RentalSystem rs = RentalSystem.getInstance();
+        Customer cust = new Customer(991, "Batcher");
+        rs.addCustomer(cust);
+        Car[] cars = new Car[4];
+        for (int i = 0; i < cars.length; i++) {
+            cars[i] = new Car("seat", "ibiza", 2020, 5);
+            cars[i].setLicensePlate("EB000" + i);
+            assertTrue(rs.addVehicle(cars[i]));
+        }
+        java.util.Map<Vehicle, java.util.List<RentalEvent.Type>> seen = new java.util.IdentityHashMap<>();
+        RentalEventBus.Subscription subscription = rs.getEvents().subscribeAsync(batch -> {
+            for (RentalEvent e : batch) {
+                seen.computeIfAbsent(e.getVehicle(), v -> new java.util.ArrayList<>()).add(e.getType());
+            }
+            try {
+                Thread.sleep(2); // slow consumer
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 64, 256);
+
+        Thread[] threads = new Thread[cars.length];
+        for (int t = 0; t < threads.length; t++) {
+            Car car = cars[t];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    rs.rentVehicle(car, cust, java.time.LocalDate.now(), 10.0);
+                    rs.returnVehicle(car, cust, java.time.LocalDate.now(), 0.0);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(subscription.awaitDelivered(10_000));
+        subscription.cancel();
+
+        assertEquals(cars.length * 400, subscription.getDelivered());
+        assertTrue(subscription.getBatches() < subscription.getDelivered());
+        for (Car car : cars) {
+            java.util.List<RentalEvent.Type> types = seen.get(car);
+            assertEquals(400, types.size());
+            for (int i = 0; i < types.size(); i++) {
+                assertEquals(i % 2 == 0 ? RentalEvent.Type.RENTED : RentalEvent.Type.RETURNED, types.get(i));
+            }
+        }
+    }
+
+    // 26) replication: a replica process on loopback gets the snapshot and live changes,
+    //     reservations included, refuses writes while following, and takes over when
+    //     the primary stops
+    @Test
+    void testReplicaFollowsAndTakesOver() throws Exception {
+        RentalSystem rs = RentalSystem.getInstance();
+        Customer cust = new Customer(995, "Replicated");
+        rs.addCustomer(cust);
+        Car[] cars = new Car[3];
+        for (int i = 0; i < cars.length; i++) {
+            cars[i] = new Car("opel", "astra", 2019, 5);
+            cars[i].setLicensePlate("RP000" + i);
+            assertTrue(rs.addVehicle(cars[i]));
+        }
+        assertTrue(rs.rentVehicle(cars[0], cust, java.time.LocalDate.now(), 30.0)); // in the snapshot
+        java.time.LocalDate later = java.time.LocalDate.now().plusDays(30);
+        Reservation early = rs.reserveVehicle(cars[2], cust, later, later.plusDays(2));
+        assertNotNull(early);
+
+        ReplicationPrimary primary = new ReplicationPrimary(rs);
+        primary.start(0); // loopback by default
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("replica");
+        java.nio.file.Path log = dir.resolve("replica.log");
+        Process replica = new ProcessBuilder(
+                java.nio.file.Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), "ReplicationFollower",
+                "--primary", "127.0.0.1:" + primary.getPort(), "--port", "0")
+                .directory(dir.toFile()).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            String base = null;
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (base == null || primary.getReplicaCount() == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "replica did not start");
+                Thread.sleep(50);
+                if (base == null && java.nio.file.Files.exists(log)) {
+                    for (String line : java.nio.file.Files.readAllLines(log)) {
+                        if (line.startsWith("Replica serving queries on port ")) {
+                            base = "http://127.0.0.1:" + line.substring(line.lastIndexOf(' ') + 1);
+                        }
+                    }
+                }
+            }
+
+            // live changes
+            Car added = new Car("opel", "corsa", 2022, 5);
+            added.setLicensePlate("RP0009");
+            assertTrue(rs.addVehicle(added));
+            assertTrue(rs.rentVehicle(added, cust, java.time.LocalDate.now(), 25.0));
+            assertTrue(rs.returnVehicle(cars[0], cust, java.time.LocalDate.now(), 5.0));
+            assertTrue(rs.setVehicleStatus(cars[1], Vehicle.VehicleStatus.UnderMaintenance));
+            Reservation late = rs.reserveVehicle(cars[2], cust, later.plusDays(10), later.plusDays(11));
+            assertNotNull(late);
+            assertTrue(rs.cancelReservation(early));
+            assertTrue(primary.awaitReplicated(10_000));
+
+            assertTrue(((String) http("GET", base + "/vehicles?plate=RP0000", null)[1]).contains("\"Available\""));
+            assertTrue(((String) http("GET", base + "/vehicles?plate=RP0001", null)[1]).contains("\"UnderMaintenance\""));
+            assertTrue(((String) http("GET", base + "/vehicles?plate=RP0009", null)[1]).contains("\"Rented\""));
+            assertTrue(((String) http("GET", base + "/history?plate=RP0000", null)[1]).startsWith("{\"count\":2,"));
+            assertEquals(403, http("POST", base + "/customers", "{\"id\":996,\"name\":\"Too Early\"}")[0]);
+
+            primary.stop();
+            deadline = System.currentTimeMillis() + 10_000;
+            while ((int) http("POST", base + "/customers", "{\"id\":996,\"name\":\"After Takeover\"}")[0] != 200) {
+                assertTrue(System.currentTimeMillis() < deadline, "replica did not take over");
+                Thread.sleep(50);
+            }
+            // the bookings came along, with the primary's ids (after any from earlier tests)
+            java.util.List<String> booked = java.nio.file.Files.readAllLines(dir.resolve("reservations.txt"));
+            assertEquals(java.util.List.of(CsvFormat.formatReservation(early), CsvFormat.formatReservation(late),
+                            CsvFormat.formatCancellation(early)),
+                    booked.subList(booked.size() - 3, booked.size()));
+            assertEquals(409, http("POST", base + "/rent", "{\"plate\":\"RP0002\",\"customerId\":996,\"date\":\""
+                    + later.plusDays(10) + "\"}")[0]);
+            assertEquals(200, http("POST", base + "/rent", "{\"plate\":\"RP0002\",\"customerId\":996,\"date\":\""
+                    + later + "\"}")[0]);
+        } finally {
+            primary.stop();
+            replica.destroy();
+            replica.waitFor();
+        }
+    }
+
+    // 27) durability modes: when appended lines can be read back from the file
+    @Test
+    void testFileAppenderDurabilityModes() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("appender");
+
+        java.nio.file.Path every = dir.resolve("every.txt");
+        FileAppender a = new FileAppender(every.toString(), FileAppender.Durability.EVERY_WRITE, 60_000, 1000);
+        a.append("one");
+        assertEquals(java.util.List.of("one"), java.nio.file.Files.readAllLines(every));
+        a.appendAll(java.util.List.of("two", "three"));
+        assertEquals(3, java.nio.file.Files.readAllLines(every).size());
+        a.dispose();
+
+        // line threshold: nothing until the third line, then all three
+        java.nio.file.Path lines = dir.resolve("lines.txt");
+        FileAppender b = new FileAppender(lines.toString(), FileAppender.Durability.GROUP_COMMIT, 60_000, 3);
+        b.append("one");
+        b.append("two");
+        assertFalse(java.nio.file.Files.exists(lines));
+        b.append("three");
+        assertEquals(java.util.List.of("one", "two", "three"), java.nio.file.Files.readAllLines(lines));
+        b.dispose();
+
+        // interval: a single line shows up once the timer has run
+        java.nio.file.Path timed = dir.resolve("timed.txt");
+        FileAppender c = new FileAppender(timed.toString(), FileAppender.Durability.GROUP_COMMIT, 200, 1000);
+        c.append("one");
+        assertFalse(java.nio.file.Files.exists(timed));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!java.nio.file.Files.exists(timed) || java.nio.file.Files.size(timed) == 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "group commit timer never wrote the line");
+            Thread.sleep(20);
+        }
+        assertEquals(java.util.List.of("one"), java.nio.file.Files.readAllLines(timed));
+        c.dispose();
+
+        // on shutdown: held in memory until close(), which RentalSystem.shutdown() calls
+        java.nio.file.Path held = dir.resolve("held.txt");
+        FileAppender d = new FileAppender(held.toString(), FileAppender.Durability.ON_SHUTDOWN, 60_000, 1);
+        for (int i = 0; i < 100; i++) {
+            d.append("line " + i);
+        }
+        assertFalse(java.nio.file.Files.exists(held));
+        d.close();
+        assertEquals(100, java.nio.file.Files.readAllLines(held).size());
+        assertEquals("line 99", java.nio.file.Files.readAllLines(held).get(99));
+    }
+
+    // Runs RentalHttpServer in its own JVM, in dir, with the given -D options.
+    // Returns the process and the service's base URL once it is listening.
+    private static Object[] startService(java.nio.file.Path dir, String... options) throws Exception {
+        java.util.List<String> command = new java.util.ArrayList<>();
+        command.add(java.nio.file.Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(java.util.List.of(options));
+        command.addAll(java.util.List.of("-cp", System.getProperty("java.class.path"), "RentalHttpServer", "--port", "0"));
+        java.nio.file.Path log = java.nio.file.Files.createTempFile(dir, "service", ".log");
+        Process process = new ProcessBuilder(command).directory(dir.toFile())
+                .redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (System.currentTimeMillis() < deadline && process.isAlive()) {
+            for (String line : java.nio.file.Files.readAllLines(log)) {
+                if (line.startsWith("Rental service listening on port ")) {
+                    return new Object[] { process, "http://127.0.0.1:" + line.substring(line.lastIndexOf(' ') + 1) };
+                }
+            }
+            Thread.sleep(50);
+        }
+        process.destroy();
+        fail("service did not start: " + java.nio.file.Files.readAllLines(log));
+        return null;
+    }
+
+    // 28) journal replay: rents and returns missing from records.txt are rebuilt from the
+    //     journal on load and appended to records.txt once
+    @Test
+    void testJournalReplayRestoresLostRecords() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("replay");
+        Car first = new Car("seat", "ibiza", 2020, 5);
+        first.setLicensePlate("JR0001");
+        Car second = new Car("seat", "leon", 2021, 5);
+        second.setLicensePlate("JR0002");
+        Customer cust = new Customer(1, "Journal Tester");
+        java.nio.file.Files.write(dir.resolve("vehicles.txt"),
+                java.util.List.of(CsvFormat.formatVehicle(first), CsvFormat.formatVehicle(second)));
+        java.nio.file.Files.write(dir.resolve("customers.txt"), java.util.List.of(CsvFormat.formatCustomer(cust)));
+
+        // three transactions reached the journal, only the first one records.txt
+        java.time.LocalDate d = java.time.LocalDate.of(2025, 4, 1);
+        RentalJournal journal = new RentalJournal(dir.resolve("rentals.journal").toString());
+        journal.append(RentalJournal.RENT, "JR0001", 1, d, 50.0);
+        journal.append(RentalJournal.RETURN, "JR0001", 1, d.plusDays(2), 7.5);
+        journal.awaitDurable(journal.append(RentalJournal.RENT, "JR0002", 1, d.plusDays(3), 60.0));
+        journal.close();
+        java.nio.file.Files.write(dir.resolve("records.txt"),
+                java.util.List.of(CsvFormat.formatRecord(new RentalRecord(first, cust, d, 50.0, "RENT"), 1)));
+
+        for (int run = 0; run < 2; run++) {
+            Object[] service = startService(dir);
+            Process process = (Process) service[0];
+            String base = (String) service[1];
+            try {
+                assertTrue(((String) http("GET", base + "/vehicles?plate=JR0001", null)[1]).contains("\"Available\""));
+                assertTrue(((String) http("GET", base + "/vehicles?plate=JR0002", null)[1]).contains("\"Rented\""));
+                assertTrue(((String) http("GET", base + "/history?plate=JR0001", null)[1]).startsWith("{\"count\":2,"));
+                assertTrue(((String) http("GET", base + "/history?plate=JR0002", null)[1]).startsWith("{\"count\":1,"));
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+            // the rebuilt lines were saved, so the second run finds nothing missing
+            java.util.List<String> lines = java.nio.file.Files.readAllLines(dir.resolve("records.txt"));
+            assertEquals(3, lines.size());
+            assertEquals("RETURN,JR0001,1,2025-04-03,7.5,2", lines.get(1));
+            assertEquals(3, CsvFormat.parseRecordSequence(lines.get(2)));
+        }
+    }
+
+    // 29) journal tail: a half-written last entry or one with a bad CRC is cut off on
+    //     replay, and new entries continue right after the last good one
+    @Test
+    void testJournalTruncatesTornTail() throws Exception {
+        java.nio.file.Path file = java.nio.file.Files.createTempDirectory("torn").resolve("rentals.journal");
+        java.time.LocalDate d = java.time.LocalDate.of(2025, 5, 1);
+        RentalJournal journal = new RentalJournal(file.toString());
+        for (int i = 0; i < 3; i++) {
+            journal.append(i % 2 == 0 ? RentalJournal.RENT : RentalJournal.RETURN, "JT0001", 1, d.plusDays(i), i);
+        }
+        journal.awaitDurable(3);
+        journal.close();
+        long intact = java.nio.file.Files.size(file);
+        int entryBytes = (int) (intact / 3);
+
+        // a crash half way through writing a fourth entry
+        byte[] bytes = java.nio.file.Files.readAllBytes(file);
+        java.nio.file.Files.write(file, java.util.Arrays.copyOf(bytes, entryBytes / 2),
+                java.nio.file.StandardOpenOption.APPEND);
+        java.util.List<Long> seqs = new java.util.ArrayList<>();
+        journal = new RentalJournal(file.toString());
+        assertEquals(3, journal.replay((seq, type, plate, customerId, date, amount) -> seqs.add(seq)));
+        assertEquals(java.util.List.of(1L, 2L, 3L), seqs);
+        assertEquals(intact, java.nio.file.Files.size(file));
+        long next = journal.append(RentalJournal.RENT, "JT0001", 1, d.plusDays(3), 3);
+        assertEquals(4, next);
+        journal.awaitDurable(next);
+        journal.close();
+        assertEquals(intact + entryBytes, java.nio.file.Files.size(file));
+
+        // a flipped bit in the fourth entry's CRC
+        bytes = java.nio.file.Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        java.nio.file.Files.write(file, bytes);
+        seqs.clear();
+        journal = new RentalJournal(file.toString());
+        assertEquals(3, journal.replay((seq, type, plate, customerId, date, amount) -> seqs.add(seq)));
+        assertEquals(intact, java.nio.file.Files.size(file));
+        journal.awaitDurable(journal.append(RentalJournal.RETURN, "JT0001", 1, d.plusDays(4), 4));
+        journal.close();
+
+        seqs.clear();
+        double[] lastAmount = new double[1];
+        assertEquals(4, new RentalJournal(file.toString()).replay((seq, type, plate, customerId, date, amount) -> {
+            seqs.add(seq);
+            lastAmount[0] = amount;
+        }));
+        assertEquals(java.util.List.of(1L, 2L, 3L, 4L), seqs);
+        assertEquals(4.0, lastAmount[0]);
+    }
+
+    // 30) group commit: every concurrent awaitDurable returns only once its entry is
+    //     durable, and every entry is on disk exactly once
+    @Test
+    void testJournalGroupCommit() throws Exception {
+        java.nio.file.Path file = java.nio.file.Files.createTempDirectory("group").resolve("rentals.journal");
+        RentalJournal journal = new RentalJournal(file.toString());
+        int threads = 8;
+        int perThread = 200;
+        java.util.concurrent.atomic.AtomicInteger early = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.List<java.util.concurrent.Future<?>> results = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            results.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    long seq = journal.append(RentalJournal.RENT, "JG" + (1000 + id), id, java.time.LocalDate.now(), i);
+                    journal.awaitDurable(seq);
+                    if (journal.getDurableSequence() < seq) {
+                        early.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (java.util.concurrent.Future<?> f : results) {
+            f.get(60, java.util.concurrent.TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertEquals(0, early.get());
+        assertEquals(threads * perThread, journal.getDurableSequence());
+        journal.close();
+
+        java.util.BitSet seen = new java.util.BitSet();
+        int[] next = new int[threads];
+        assertEquals(threads * perThread, new RentalJournal(file.toString()).replay(
+                (seq, type, plate, customerId, date, amount) -> {
+                    assertFalse(seen.get((int) seq));
+                    seen.set((int) seq);
+                    assertEquals(next[customerId]++, (int) amount); // each thread's entries in its order
+                }));
+        assertEquals(threads * perThread, seen.cardinality());
+    }
+
+    // 31) compaction: a restart after a snapshot taken while the service was in use has
+    //     the same vehicles and statuses, the archived and live records together hold the
+    //     whole history, and a half-written temp snapshot left behind is ignored
+    @Test
+    void testCompactionSurvivesRestart() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("compact");
+        String[] plates = { "CP0000", "CP0001", "CP0002", "CP0003", "CP0009" };
+        String vehiclesBefore;
+        int[] historyBefore = new int[plates.length];
+        // compacts a second after loading, then a second after each compaction ends
+        Object[] service = startService(dir, "-Drental.snapshotIntervalMs=1000");
+        Process process = (Process) service[0];
+        String base = (String) service[1];
+        try {
+            assertEquals(200, http("POST", base + "/customers", "{\"id\":1,\"name\":\"Compact Tester\"}")[0]);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(200, http("POST", base + "/vehicles",
+                        "type=CAR&plate=" + plates[i] + "&make=skoda&model=fabia&year=2020&seats=5")[0]);
+            }
+            assertEquals(200, http("POST", base + "/rent", "plate=CP0000&customerId=1&amount=30")[0]);
+            assertEquals(200, http("POST", base + "/rent", "plate=CP0001&customerId=1&amount=35")[0]);
+            assertEquals(200, http("POST", base + "/return", "plate=CP0000&customerId=1&amount=5")[0]);
+
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (archivedLines(dir).isEmpty()) {
+                assertTrue(System.currentTimeMillis() < deadline, "no compaction archived the records");
+                Thread.sleep(20);
+            }
+            Thread.sleep(200); // let it finish with the journal; the next one is a second away
+
+            // after the snapshot: a new vehicle and more rents and returns
+            assertEquals(200, http("POST", base + "/vehicles",
+                    "type=CAR&plate=CP0009&make=skoda&model=octavia&year=2022&seats=5")[0]);
+            assertEquals(200, http("POST", base + "/rent", "plate=CP0009&customerId=1&amount=50")[0]);
+            assertEquals(200, http("POST", base + "/return", "plate=CP0001&customerId=1&amount=0")[0]);
+            assertEquals(200, http("POST", base + "/rent", "plate=CP0000&customerId=1&amount=30")[0]);
+            vehiclesBefore = (String) http("GET", base + "/vehicles", null)[1];
+            for (int i = 0; i < plates.length; i++) {
+                historyBefore[i] = historyCount(base, plates[i]);
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+        assertTrue(java.nio.file.Files.exists(dir.resolve("rental.snapshot")));
+        assertTrue(java.nio.file.Files.readAllLines(dir.resolve("vehicles.txt")).size() < plates.length);
+
+        java.nio.file.Files.write(dir.resolve("rental.snapshot.tmp"),
+                java.util.List.of("SNAPSHOT,1,99,0", "VEHICLES,3", "CAR,CP0007,Skoda,Fabia,2020"));
+        service = startService(dir);
+        process = (Process) service[0];
+        base = (String) service[1];
+        try {
+            assertEquals(vehiclesBefore, http("GET", base + "/vehicles", null)[1]);
+            assertTrue(vehiclesBefore.contains("\"plate\":\"CP0001\""));
+            assertEquals(404, http("GET", base + "/vehicles?plate=CP0007", null)[0]);
+            java.util.List<String> archived = archivedLines(dir);
+            for (int i = 0; i < plates.length; i++) {
+                String plate = plates[i];
+                long inArchive = archived.stream().filter(line -> line.contains("," + plate + ",")).count();
+                assertEquals(historyBefore[i], historyCount(base, plate) + inArchive, plate);
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static int historyCount(String base, String plate) throws Exception {
+        String body = (String) http("GET", base + "/history?plate=" + plate, null)[1];
+        return Integer.parseInt(body.substring("{\"count\":".length(), body.indexOf(',')));
+    }
+
+    // every line of the records-<generation>.txt files in dir
+    private static java.util.List<String> archivedLines(java.nio.file.Path dir) throws Exception {
+        java.util.List<String> lines = new java.util.ArrayList<>();
+        try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(dir)) {
+            for (java.nio.file.Path file : (Iterable<java.nio.file.Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("records-") && name.endsWith(".txt")) {
+                    lines.addAll(java.nio.file.Files.readAllLines(file));
+                }
+            }
+        }
+        return lines;
+    }
+
+    // 32) loaders: on a generated file with malformed lines and CRLF endings, split into
+    //     chunks that start mid-line, the BufferedReader, mapped and parallel loaders agree
+    @Test
+    void testRecordLoadersAgree() throws Exception {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("loaders");
+        new DataGenerator(7, 2).generate(dir, 500, 800, 120_000);
+        java.nio.file.Path file = dir.resolve("records.txt");
+        java.util.List<String> lines = java.nio.file.Files.readAllLines(file);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            sb.append(lines.get(i)).append(i % 7 == 0 ? "\r\n" : "\n");
+            if (i % 10_000 == 5_000) {
+                sb.append("short,line\n");
+                sb.append("RENT,ZZ9999,1,2024-01-01,10.0\n");          // unknown vehicle
+                sb.append(lines.get(i).replaceFirst(",\\d+,", ",999999,")).append('\n'); // unknown customer
+                sb.append('\n');
+            }
+        }
+        sb.append("RETURN,").append(DataGenerator.plate(0)).append(",1,2024-13-45,1.0\n"); // bad date ends every load
+        java.nio.file.Files.writeString(file, sb);
+        assertTrue(java.nio.file.Files.size(file) > 3 << 20); // several 1 MB chunks
+
+        // vehicles and customers one after the other, and at the same time as in parallel mode
+        VehicleRegistry vehicles = new VehicleRegistry();
+        CustomerRegistry customers = new CustomerRegistry();
+        for (String line : java.nio.file.Files.readAllLines(dir.resolve("vehicles.txt"))) {
+            vehicles.add(CsvFormat.parseVehicle(line));
+        }
+        for (String line : java.nio.file.Files.readAllLines(dir.resolve("customers.txt"))) {
+            customers.add(CsvFormat.parseCustomer(line));
+        }
+        VehicleRegistry vehicles2 = new VehicleRegistry();
+        CustomerRegistry customers2 = new CustomerRegistry();
+        java.util.concurrent.CompletableFuture<Void> vehicleLoad = java.util.concurrent.CompletableFuture.runAsync(() -> {
+            try {
+                for (String line : java.nio.file.Files.readAllLines(dir.resolve("vehicles.txt"))) {
+                    vehicles2.add(CsvFormat.parseVehicle(line));
+                }
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        });
+        for (String line : java.nio.file.Files.readAllLines(dir.resolve("customers.txt"))) {
+            customers2.add(CsvFormat.parseCustomer(line));
+        }
+        vehicleLoad.join();
+        assertEquals(500, vehicles.asList().size());
+        assertEquals(800, customers.asList().size());
+        for (int i = 0; i < 500; i++) {
+            Vehicle a = vehicles.asList().get(i);
+            Vehicle b = vehicles2.asList().get(i);
+            assertEquals(CsvFormat.formatVehicle(a), CsvFormat.formatVehicle(b));
+        }
+        for (int i = 0; i < 800; i++) {
+            assertEquals(CsvFormat.formatCustomer(customers.asList().get(i)),
+                    CsvFormat.formatCustomer(customers2.asList().get(i)));
+        }
+
+        // records: each loader stops at the bad date with the same exception
+        java.util.List<RentalRecord> byLine = new java.util.ArrayList<>();
+        Exception lineError = null;
+        try (java.io.BufferedReader br = java.nio.file.Files.newBufferedReader(file)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                RentalRecord r = CsvFormat.parseRecord(line, vehicles::find, customers::find);
+                if (r != null) {
+                    byLine.add(r);
+                }
+            }
+        } catch (RuntimeException e) {
+            lineError = e;
+        }
+        java.util.List<RentalRecord> mapped = new java.util.ArrayList<>();
+        MappedRecordLoader mappedLoader = new MappedRecordLoader(vehicles::find, customers::find);
+        Exception mappedError = assertThrows(java.time.format.DateTimeParseException.class,
+                () -> mappedLoader.load(file, mapped::add));
+        java.util.List<RentalRecord> parallel = new java.util.ArrayList<>();
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        Exception parallelError = assertThrows(java.time.format.DateTimeParseException.class,
+                () -> new ParallelRecordLoader(vehicles::find, customers::find, pool).load(file, parallel::add));
+        pool.shutdown();
+
+        assertNotNull(lineError);
+        assertEquals(lineError.getClass(), mappedError.getClass());
+        assertEquals(lineError.getClass(), parallelError.getClass());
+        assertEquals(120_000, byLine.size());
+        assertEquals(36, mappedLoader.getSkippedLines()); // 3 bad lines in each of 12 blocks
+        for (java.util.List<RentalRecord> other : java.util.List.of(mapped, parallel)) {
+            assertEquals(byLine.size(), other.size());
+            for (int i = 0; i < byLine.size(); i++) {
+                RentalRecord a = byLine.get(i);
+                RentalRecord b = other.get(i);
+                assertEquals(a.getRecordType(), b.getRecordType());
+                assertSame(a.getVehicle(), b.getVehicle());
+                assertSame(a.getCustomer(), b.getCustomer());
+                assertEquals(a.getRecordDate(), b.getRecordDate());
+                assertEquals(a.getTotalAmount(), b.getTotalAmount());
+            }
+        }
+    }
+
+    // 33) group commit through RentalSystem: rents and returns wait for the journal after
+    //     releasing the vehicle's lock, so concurrent transactions share one fsync
+    @Test
+    void testConcurrentRentsShareJournalForce() throws Exception {
+        RentalSystem rs = RentalSystem.getInstance();
+        RentalJournal journal = rs.getJournal();
+        assertNotNull(journal);
+        Customer cust = new Customer(3300, "Force Sharer");
+        rs.addCustomer(cust);
+        int threads = 32;
+        int perThread = 20;
+        Car[] cars = new Car[threads];
+        for (int t = 0; t < threads; t++) {
+            cars[t] = new Car("skoda", "octavia", 2022, 5);
+            cars[t].setLicensePlate("GF" + (1000 + t));
+            assertTrue(rs.addVehicle(cars[t]));
+        }
+        long forcesBefore = journal.getForceCount();
+        java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.List<java.util.concurrent.Future<Boolean>> results = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Car car = cars[t];
+            results.add(pool.submit(() -> {
+                start.await();
+                boolean ok = true;
+                for (int i = 0; i < perThread; i++) {
+                    java.time.LocalDate d = java.time.LocalDate.of(2026, 1, 1).plusDays(i);
+                    ok &= rs.rentVehicle(car, cust, d, 10.0);
+                    ok &= rs.returnVehicle(car, cust, d, 0.0);
+                }
+                return ok;
+            }));
+        }
+        start.countDown();
+        for (java.util.concurrent.Future<Boolean> f : results) {
+            assertTrue(f.get(60, java.util.concurrent.TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        int transactions = threads * perThread * 2;
+        long forces = journal.getForceCount() - forcesBefore;
+        assertTrue(forces > 0);
+        assertTrue(forces < transactions / 2, forces + " fsyncs for " + transactions + " transactions");
+        assertEquals(journal.getLastSequence(), journal.getDurableSequence());
+    }
+
+    // 34) range index: cumulative counts and collected ordinals agree with a scan,
+    //     for int keys and for doubles mapped to sortable keys
+    @Test
+    void testRangeIndexCountsMatchScan() {
+        java.util.Random random = new java.util.Random(34);
+        RangeIndex ints = new RangeIndex();
+        RangeIndex doubles = new RangeIndex();
+        int[] intKeys = new int[3000];
+        double[] doubleKeys = new double[3000];
+        for (int i = 0; i < intKeys.length; i++) {
+            intKeys[i] = 1990 + random.nextInt(200); // more distinct keys than the initial slots
+            doubleKeys[i] = (random.nextInt(400) - 200) / 8.0;
+            ints.add(intKeys[i], i);
+            doubles.add(RangeIndex.key(doubleKeys[i]), i);
+        }
+        for (int q = 0; q < 200; q++) {
+            int min = 1980 + random.nextInt(220);
+            int max = min + random.nextInt(60) - 10; // sometimes below min
+            double dmin = (random.nextInt(440) - 220) / 8.0;
+            double dmax = dmin + (random.nextInt(100) - 10) / 4.0;
+            java.util.Set<Integer> expectedInts = new java.util.TreeSet<>();
+            java.util.Set<Integer> expectedDoubles = new java.util.TreeSet<>();
+            for (int i = 0; i < intKeys.length; i++) {
+                if (intKeys[i] >= min && intKeys[i] <= max) {
+                    expectedInts.add(i);
+                }
+                if (doubleKeys[i] >= dmin && doubleKeys[i] <= dmax) {
+                    expectedDoubles.add(i);
+                }
+            }
+            assertEquals(expectedInts.size(), ints.count(min, max));
+            assertEquals(expectedDoubles.size(), doubles.count(RangeIndex.key(dmin), RangeIndex.key(dmax)));
+            IntList collected = new IntList();
+            ints.collect(min, max, collected);
+            java.util.Set<Integer> actual = new java.util.TreeSet<>();
+            for (int i = 0; i < collected.size(); i++) {
+                actual.add(collected.get(i));
+            }
+            assertEquals(expectedInts, actual);
+        }
+        assertEquals(intKeys.length, ints.count(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    // 35) history indexes: records added from many threads at once, sharing customers
+    //     and days, are all found by every index, in insertion order
+    @Test
+    void testRentalHistoryConcurrentAdds() throws Exception {
+        RentalHistory history = new RentalHistory();
+        int threads = 8;
+        int perThread = 2000;
+        Customer[] customers = { new Customer(3501, "Ada Parallel"), new Customer(3502, "Bo Parallel") };
+        java.time.LocalDate d = java.time.LocalDate.of(2026, 3, 1);
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.List<java.util.concurrent.Future<?>> results = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Car car = new Car("kia", "ceed", 2023, 5);
+            car.setLicensePlate("HC" + (1000 + t));
+            results.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    history.addRecord(new RentalRecord(car, customers[i % 2], d.plusDays(i % 10), i,
+                            i % 2 == 0 ? "RENT" : "RETURN"));
+                }
+                return null;
+            }));
+        }
+        for (java.util.concurrent.Future<?> f : results) {
+            f.get(60, java.util.concurrent.TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        java.util.List<RentalRecord> all = history.getRentalHistory();
+        assertEquals(threads * perThread, all.size());
+        java.util.Map<RentalRecord, Integer> position = new java.util.IdentityHashMap<>();
+        for (int i = 0; i < all.size(); i++) {
+            position.put(all.get(i), i);
+        }
+        java.util.List<java.util.List<RentalRecord>> lookups = java.util.List.of(
+                history.getRentalRecordsByCustomerId(3501),
+                history.getRentalRecordsByCustomerId(3502),
+                history.getRentalRecordsByCustomer("parallel"),
+                history.getRentalRecordsByCustomerNameToken("ada"),
+                history.getRentalRecordsByVehicle("HC1003"),
+                history.getRentalRecordsOn(d.plusDays(4)));
+        int[] sizes = { threads * perThread / 2, threads * perThread / 2, threads * perThread,
+                threads * perThread / 2, perThread, threads * perThread / 10 };
+        for (int l = 0; l < lookups.size(); l++) {
+            java.util.List<RentalRecord> found = lookups.get(l);
+            assertEquals(sizes[l], found.size());
+            for (int i = 1; i < found.size(); i++) {
+                assertTrue(position.get(found.get(i - 1)) < position.get(found.get(i)));
+            }
+        }
+        assertEquals(d, history.getFirstRecordDate());
+        assertEquals(d.plusDays(9), history.getLastRecordDate());
+    }
+
+    // 36) analytics: totals and the top-spender ranking stay exact when many threads
+    //     add records for shared customers and days at once
+    @Test
+    void testRentalAnalyticsConcurrentAdds() throws Exception {
+        RentalAnalytics analytics = new RentalAnalytics();
+        int threads = 8;
+        int perThread = 5000;
+        Customer[] customers = new Customer[300];
+        for (int c = 0; c < customers.length; c++) {
+            customers[c] = new Customer(3600 + c, "Spender " + c);
+        }
+        java.time.LocalDate d = java.time.LocalDate.of(2026, 5, 1);
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.List<java.util.concurrent.Future<?>> results = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Car car = new Car("vw", "golf", 2024, 5);
+            car.setLicensePlate("AN" + (1000 + t));
+            results.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // customer c always pays c + 1 dollars, so the ranking is known up front
+                    int c = i % customers.length;
+                    analytics.add(new RentalRecord(car, customers[c], d.plusDays(i % 3), c + 1,
+                            i % 2 == 0 ? "RENT" : "RETURN"));
+                }
+                return null;
+            }));
+        }
+        for (java.util.concurrent.Future<?> f : results) {
+            f.get(60, java.util.concurrent.TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        long expectedCents = 0;
+        long[] spent = new long[customers.length];
+        for (int i = 0; i < perThread; i++) {
+            int c = i % customers.length;
+            expectedCents += (c + 1) * 100L;
+            spent[c] += (c + 1) * 100L * threads;
+        }
+        assertEquals(expectedCents * threads / 100.0, analytics.getTotalRevenue(VehicleType.CAR), 1e-6);
+        assertEquals(analytics.getTotalRevenue(VehicleType.CAR),
+                analytics.getRevenue(d) + analytics.getRevenue(d.plusDays(1)) + analytics.getRevenue(d.plusDays(2)), 1e-6);
+        assertEquals(threads * perThread / 2, analytics.getCompletedRentals());
+        java.util.List<RentalAnalytics.CustomerSpend> top = analytics.getTopCustomers(10);
+        assertEquals(10, top.size());
+        for (int k = 0; k < top.size(); k++) {
+            int c = customers.length - 1 - k;
+            assertEquals(customers[c].getCustomerId(), top.get(k).getCustomer().getCustomerId());
+            assertEquals(spent[c] / 100.0, top.get(k).getAmount(), 1e-6);
+        }
+    }
+
+    // 37) HTTP endpoint: vehicle values a constructor rejects are a 400, not a 500
+    @Test
+    void testHttpServerRejectsInvalidVehicle() throws Exception {
+        RentalHttpServer server = new RentalHttpServer(RentalSystem.getInstance());
+        server.start(0);
+        try {
+            String base = "http://localhost:" + server.getPort();
+            Object[] zeroCargo = http("POST", base + "/vehicles",
+                    "type=PICKUP&plate=HV0001&make=ram&model=1500&year=2022&cargo=0");
+            assertEquals(400, zeroCargo[0]);
+            assertTrue(((String) zeroCargo[1]).contains("Cargo size must be > 0"));
+            assertEquals(400, http("POST", base + "/vehicles",
+                    "type=PICKUP&plate=HV0001&make=ram&model=1500&year=2022&cargo=-2.5")[0]);
+            assertEquals(400, http("POST", base + "/vehicles",
+                    "type=PICKUP&plate=HV0001&make=ram&model=1500&year=2022&cargo=lots")[0]);
+            assertNull(RentalSystem.getInstance().findVehicleByPlate("HV0001"));
+            assertEquals(200, http("POST", base + "/vehicles",
+                    "type=PICKUP&plate=HV0001&make=ram&model=1500&year=2022&cargo=2.5")[0]);
+        } finally {
+            server.stop();
+        }
+    }
+}
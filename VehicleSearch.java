@@ -0,0 +1,332 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+// Attribute indexes over one VehicleRegistry, keyed by registration ordinal:
+// bitmaps for type, accessibility and trailer, range indexes for year, seats and
+// cargo size (plus the same values in primitive columns for checking a candidate).
+// Status comes from the registry's AvailabilityIndex, which already follows every
+// status change.
+//
+// A query estimates how many vehicles each criterion matches and starts from the
+// smallest. If that is a bitmap, every other bitmap criterion is ANDed into it a
+// word at a time; the remaining criteria are then checked per candidate, cheapest
+// first (column reads before status, which has to look at the vehicle).
+public class VehicleSearch {
+
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final int INITIAL_CAPACITY = 1024;
+    // in the int columns: the vehicle has no such attribute
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private final List<Vehicle> vehicles;
+    private final AvailabilityIndex availability;
+    // guards the indexes; adds are short and queries run in parallel
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // [type], with the last slot for vehicles of no known VehicleType
+    private final BitSet[] byType = new BitSet[TYPES.length + 1];
+    private final int[] typeCounts = new int[TYPES.length + 1];
+    private final BitSet accessible = new BitSet();
+    private int accessibleCount;
+    private final BitSet trailer = new BitSet();
+    private int trailerCount;
+    // year and seats keyed by their int value, cargo by RangeIndex.key
+    private final RangeIndex byYear = new RangeIndex();
+    private final RangeIndex bySeats = new RangeIndex();
+    private final RangeIndex byCargo = new RangeIndex();
+    // by ordinal; NONE or NaN where the vehicle has no such attribute
+    private int[] years = new int[INITIAL_CAPACITY];
+    private int[] seats = new int[INITIAL_CAPACITY];
+    private double[] cargo = new double[INITIAL_CAPACITY];
+    private int size;
+
+    // one criterion of a query; estimate is how many vehicles it can match
+    private abstract static class Criterion {
+        final int estimate;
+        // checking order among the non-driving criteria
+        final int cost;
+
+        Criterion(int estimate, int cost) {
+            this.estimate = estimate;
+            this.cost = cost;
+        }
+
+        abstract void candidates(IntList out);
+
+        abstract boolean test(int ordinal);
+    }
+
+    private class BitsCriterion extends Criterion {
+        final BitSet bits;
+        final boolean wanted;
+
+        BitsCriterion(BitSet bits, int count, boolean wanted) {
+            super(wanted ? count : size - count, 0);
+            this.bits = bits;
+            this.wanted = wanted;
+        }
+
+        void candidates(IntList out) {
+            if (wanted) {
+                for (int i = bits.nextSetBit(0); i >= 0 && i < size; i = bits.nextSetBit(i + 1)) {
+                    out.add(i);
+                }
+            } else {
+                for (int i = bits.nextClearBit(0); i < size; i = bits.nextClearBit(i + 1)) {
+                    out.add(i);
+                }
+            }
+        }
+
+        boolean test(int ordinal) {
+            return bits.get(ordinal) == wanted;
+        }
+    }
+
+    public VehicleSearch(List<Vehicle> vehicles, AvailabilityIndex availability) {
+        this.vehicles = vehicles;
+        this.availability = availability;
+        for (int t = 0; t < byType.length; t++) {
+            byType[t] = new BitSet();
+        }
+        Arrays.fill(years, NONE);
+        Arrays.fill(seats, NONE);
+        Arrays.fill(cargo, Double.NaN);
+    }
+
+    // ordinal is the vehicle's position in the registry's list
+    public void add(Vehicle v, int ordinal) {
+        lock.writeLock().lock();
+        try {
+            if (ordinal >= years.length) {
+                int capacity = Math.max(years.length * 2, ordinal + 1);
+                years = grow(years, capacity);
+                seats = grow(seats, capacity);
+                cargo = grow(cargo, capacity);
+            }
+            int slot = typeSlot(VehicleType.of(v));
+            byType[slot].set(ordinal);
+            typeCounts[slot]++;
+            years[ordinal] = v.getYear();
+            byYear.add(v.getYear(), ordinal);
+            if (v instanceof Car) {
+                seats[ordinal] = ((Car) v).getNumSeats();
+                bySeats.add(seats[ordinal], ordinal);
+            } else if (v instanceof Minibus) {
+                if (((Minibus) v).isAccessible()) {
+                    accessible.set(ordinal);
+                    accessibleCount++;
+                }
+            } else if (v instanceof PickupTruck) {
+                PickupTruck truck = (PickupTruck) v;
+                cargo[ordinal] = truck.getCargoSize();
+                byCargo.add(RangeIndex.key(cargo[ordinal]), ordinal);
+                if (truck.hasTrailer()) {
+                    trailer.set(ordinal);
+                    trailerCount++;
+                }
+            }
+            size = Math.max(size, ordinal + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // matches in registration order
+    public List<Vehicle> search(VehicleQuery query) {
+        List<Vehicle> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            match(query, ordinal -> result.add(vehicles.get(ordinal)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int count(VehicleQuery query) {
+        lock.readLock().lock();
+        try {
+            return match(query, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Passes each match to sink in ordinal order and returns how many there were.
+    // Without a sink only the count is needed: bitmaps alone are answered by
+    // cardinality() and candidates are not sorted.
+    private int match(VehicleQuery query, IntConsumer sink) {
+        List<Criterion> criteria = criteria(query);
+        if (criteria.isEmpty()) {
+            if (sink != null) {
+                for (int i = 0; i < size; i++) {
+                    sink.accept(i);
+                }
+            }
+            return size;
+        }
+        criteria.sort(Comparator.comparingInt(c -> c.estimate));
+        Criterion driver = criteria.remove(0);
+        if (driver.estimate == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        if (driver instanceof BitsCriterion && ((BitsCriterion) driver).wanted) {
+            // AND the other bitmaps in, then check what is left
+            BitSet matches = (BitSet) ((BitsCriterion) driver).bits.clone();
+            List<Criterion> rest = new ArrayList<>();
+            for (Criterion c : criteria) {
+                if (c instanceof BitsCriterion) {
+                    BitsCriterion b = (BitsCriterion) c;
+                    if (b.wanted) {
+                        matches.and(b.bits);
+                    } else {
+                        matches.andNot(b.bits);
+                    }
+                } else {
+                    rest.add(c);
+                }
+            }
+            if (sink == null && rest.isEmpty()) {
+                return matches.cardinality();
+            }
+            rest.sort(Comparator.comparingInt((Criterion c) -> c.cost).thenComparingInt(c -> c.estimate));
+            for (int i = matches.nextSetBit(0); i >= 0 && i < size; i = matches.nextSetBit(i + 1)) {
+                if (passes(rest, i)) {
+                    count++;
+                    if (sink != null) {
+                        sink.accept(i);
+                    }
+                }
+            }
+            return count;
+        }
+
+        criteria.sort(Comparator.comparingInt((Criterion c) -> c.cost).thenComparingInt(c -> c.estimate));
+        IntList candidates = new IntList();
+        driver.candidates(candidates);
+        if (sink != null) {
+            candidates.sort();
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            int ordinal = candidates.get(i);
+            if (passes(criteria, ordinal)) {
+                count++;
+                if (sink != null) {
+                    sink.accept(ordinal);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean passes(List<Criterion> criteria, int ordinal) {
+        for (int c = 0; c < criteria.size(); c++) {
+            if (!criteria.get(c).test(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Criterion> criteria(VehicleQuery q) {
+        List<Criterion> criteria = new ArrayList<>();
+        if (q.type != null) {
+            int slot = typeSlot(q.type);
+            criteria.add(new BitsCriterion(byType[slot], typeCounts[slot], true));
+        }
+        if (q.accessible != null) {
+            criteria.add(new BitsCriterion(accessible, accessibleCount, q.accessible));
+        }
+        if (q.trailer != null) {
+            criteria.add(new BitsCriterion(trailer, trailerCount, q.trailer));
+        }
+        if (q.minYear != null || q.maxYear != null) {
+            criteria.add(range(byYear, years, q.minYear, q.maxYear));
+        }
+        if (q.minSeats != null || q.maxSeats != null) {
+            criteria.add(range(bySeats, seats, q.minSeats, q.maxSeats));
+        }
+        if (q.minCargo != null || q.maxCargo != null) {
+            criteria.add(range(byCargo, cargo, q.minCargo, q.maxCargo));
+        }
+        if (q.status != null) {
+            Vehicle.VehicleStatus status = q.status;
+            criteria.add(new Criterion(availability.count(status), 2) {
+                void candidates(IntList out) {
+                    for (Vehicle v : availability.vehicles(status)) {
+                        int ordinal = v.getRegistryOrdinal();
+                        if (ordinal < size) {
+                            out.add(ordinal);
+                        }
+                    }
+                }
+
+                boolean test(int ordinal) {
+                    return vehicles.get(ordinal).getStatus() == status;
+                }
+            });
+        }
+        return criteria;
+    }
+
+    // vehicles whose column value is in [min, max]; a null bound is open
+    private Criterion range(RangeIndex index, int[] column, Integer min, Integer max) {
+        long low = min == null ? Long.MIN_VALUE : min;
+        long high = max == null ? Long.MAX_VALUE : max;
+        int[] values = column;
+        return new Criterion(index.count(low, high), 1) {
+            void candidates(IntList out) {
+                index.collect(low, high, out);
+            }
+
+            boolean test(int ordinal) {
+                int value = values[ordinal];
+                return value != NONE && value >= low && value <= high;
+            }
+        };
+    }
+
+    private Criterion range(RangeIndex index, double[] column, Double min, Double max) {
+        long lowKey = min == null ? Long.MIN_VALUE : RangeIndex.key(min);
+        long highKey = max == null ? Long.MAX_VALUE : RangeIndex.key(max);
+        double low = min == null ? Double.NEGATIVE_INFINITY : min;
+        double high = max == null ? Double.POSITIVE_INFINITY : max;
+        double[] values = column;
+        return new Criterion(index.count(lowKey, highKey), 1) {
+            void candidates(IntList out) {
+                index.collect(lowKey, highKey, out);
+            }
+
+            boolean test(int ordinal) {
+                double value = values[ordinal];
+                return value >= low && value <= high; // false for NaN
+            }
+        };
+    }
+
+    private static int[] grow(int[] column, int capacity) {
+        int old = column.length;
+        int[] grown = Arrays.copyOf(column, capacity);
+        Arrays.fill(grown, old, capacity, NONE);
+        return grown;
+    }
+
+    private static double[] grow(double[] column, int capacity) {
+        int old = column.length;
+        double[] grown = Arrays.copyOf(column, capacity);
+        Arrays.fill(grown, old, capacity, Double.NaN);
+        return grown;
+    }
+
+    private static int typeSlot(VehicleType type) {
+        return type == null ? TYPES.length : type.ordinal();
+    }
+}
@@ -0,0 +1,45 @@
+public enum VehicleType {
+    CAR("CAR", "Car"),
+    SPORT_CAR("SPORTCAR", "Sport Car"),
+    MINIBUS("MINIBUS", "Minibus"),
+    PICKUP("PICKUP", "Pickup Truck");
+
+    private final String code;
+    private final String label;
+
+    VehicleType(String code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    // type column of vehicles.txt
+    public String getCode() {
+        return code;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public static VehicleType of(Vehicle vehicle) {
+        if (vehicle instanceof SportCar) {
+            return SPORT_CAR;
+        } else if (vehicle instanceof Car) {
+            return CAR;
+        } else if (vehicle instanceof Minibus) {
+            return MINIBUS;
+        } else if (vehicle instanceof PickupTruck) {
+            return PICKUP;
+        }
+        return null;
+    }
+
+    public static VehicleType fromCode(String code) {
+        for (VehicleType type : values()) {
+            if (type.code.equals(code)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import benchmark.RentalTarget;
+
+// What benchmark.RentalBenchmark measures, next to the default-package application.
+public class RentalBenchmarkTarget implements RentalTarget {
+
+    private static final String DATASETS = "datasets";
+    private static final String[] DATA_FILES = {"vehicles.txt", "customers.txt", "records.txt"};
+    private static final String[] STATE_FILES = {"rentals.journal", "rental.snapshot", "reservations.txt"};
+
+    private RentalSystem rs;
+    private RentalHistory history;
+    private List<Vehicle> vehicles;
+    private List<Customer> customers;
+    private List<Vehicle> available;
+    private String[] plates;
+    private int[] ids;
+    private LocalDate first;
+    private LocalDate today;
+
+    // A fresh copy replaces whatever an earlier fork loaded or appended.
+    @Override
+    public void prepare(int size, String property, String value) throws IOException {
+        Path data = Paths.get(DATASETS, "size-" + size);
+        if (!Files.exists(data.resolve("records.txt"))) {
+            new DataGenerator(42, Runtime.getRuntime().availableProcessors())
+                    .generate(data, Math.max(100, size / 100), Math.max(100, size / 50), size);
+        }
+        for (String name : DATA_FILES) {
+            Files.copy(data.resolve(name), Paths.get(name), StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (String name : STATE_FILES) {
+            Files.deleteIfExists(Paths.get(name));
+        }
+        System.setProperty(property, value);
+        // RentalSystem prints on every call
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        rs = RentalSystem.getInstance();
+    }
+
+    @Override
+    public Object loadData() {
+        rs.loadData();
+        return rs;
+    }
+
+    @Override
+    public void loadForOperations() {
+        rs.loadData();
+        vehicles = new ArrayList<>(rs.getAllVehicles());
+        customers = new ArrayList<>(rs.getAllCustomers());
+        plates = new String[vehicles.size()];
+        for (int i = 0; i < plates.length; i++) {
+            plates[i] = vehicles.get(i).getLicensePlate();
+        }
+        ids = new int[customers.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = customers.get(i).getCustomerId();
+        }
+        available = new ArrayList<>();
+        for (Vehicle v : vehicles) {
+            if (v.getStatus() == Vehicle.VehicleStatus.Available) {
+                available.add(v);
+            }
+        }
+        history = rs.getRentalHistory();
+        first = history.getFirstRecordDate();
+        today = LocalDate.now();
+    }
+
+    @Override
+    public Object addVehicleDuplicate(long i) {
+        return rs.addVehicle(vehicles.get((int) (i % vehicles.size())));
+    }
+
+    @Override
+    public Object findVehicleByPlate(long i) {
+        return rs.findVehicleByPlate(plates[(int) (i % plates.length)]);
+    }
+
+    @Override
+    public Object findCustomerById(long i) {
+        return rs.findCustomerById(ids[(int) (i % ids.length)]);
+    }
+
+    @Override
+    public Object rentReturnRoundTrip(long i) {
+        Vehicle v = available.get((int) (i % available.size()));
+        Customer c = customers.get((int) (i % customers.size()));
+        rs.rentVehicle(v, c, today, 100.0);
+        return rs.returnVehicle(v, c, today, 0.0);
+    }
+
+    @Override
+    public Object historyByVehicle(long i) {
+        return history.getRentalRecordsByVehicle(plates[(int) (i % plates.length)]);
+    }
+
+    @Override
+    public Object historyByCustomerId(long i) {
+        return history.getRentalRecordsByCustomerId(ids[(int) (i % ids.length)]);
+    }
+
+    @Override
+    public Object historyByCustomerName(long i) {
+        return history.getRentalRecordsByCustomer(customers.get((int) (i % customers.size())).getCustomerName());
+    }
+
+    @Override
+    public Object historyBetween7Days(long i) {
+        if (first == null) {
+            return null;
+        }
+        LocalDate from = first.plusDays(i % 365);
+        return history.getRentalRecordsBetween(from, from.plusDays(6));
+    }
+}
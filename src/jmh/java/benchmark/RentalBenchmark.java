@@ -0,0 +1,121 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// JMH benchmarks of the RentalSystem hot paths: gradle jmh
+//
+// RentalSystem is a singleton that reads and appends files in the working directory,
+// so every fork first copies its dataset there. A dataset is DataGenerator output
+// with `size` records.txt lines, generated once under datasets/ and then reused.
+//   - Load: one cold loadData() per fork, for each loader
+//   - Operations: the per-operation benchmarks after loadData(), for each RentalHistory variant
+// Use JMH's -rf json or -rf csv for machine-readable results.
+public class RentalBenchmark {
+
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(value = 5, jvmArgsAppend = {"-Drental.journal=false", "-Drental.durability=on-shutdown"})
+    public static class Load {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        @Param({"reader", "mmap", "parallel"})
+        public String loader;
+
+        private RentalTarget target;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            target = RentalTarget.create();
+            target.prepare(size, "rental.loader", loader);
+        }
+
+        @Benchmark
+        public Object loadData() {
+            return target.loadData();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = {"-Drental.journal=false", "-Drental.durability=on-shutdown"})
+    public static class Operations {
+
+        @Param({"10000", "100000", "1000000"})
+        public int size;
+
+        @Param({"default", "columnar"})
+        public String history;
+
+        private RentalTarget target;
+        private long i;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            target = RentalTarget.create();
+            target.prepare(size, "rental.history", history);
+            target.loadForOperations();
+        }
+
+        @Benchmark
+        public Object addVehicleDuplicate() {
+            return target.addVehicleDuplicate(i++);
+        }
+
+        @Benchmark
+        public Object findVehicleByPlate() {
+            return target.findVehicleByPlate(i++);
+        }
+
+        @Benchmark
+        public Object findCustomerById() {
+            return target.findCustomerById(i++);
+        }
+
+        @Benchmark
+        public Object rentReturnRoundTrip() {
+            return target.rentReturnRoundTrip(i++);
+        }
+
+        @Benchmark
+        public Object historyByVehicle() {
+            return target.historyByVehicle(i++);
+        }
+
+        @Benchmark
+        public Object historyByCustomerId() {
+            return target.historyByCustomerId(i++);
+        }
+
+        @Benchmark
+        public Object historyByCustomerName() {
+            return target.historyByCustomerName(i++);
+        }
+
+        @Benchmark
+        public Object historyBetween7Days() {
+            return target.historyBetween7Days(i++);
+        }
+    }
+}
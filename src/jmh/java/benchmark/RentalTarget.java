@@ -0,0 +1,43 @@
+package benchmark;
+
+import java.io.IOException;
+
+// The RentalSystem calls the benchmarks measure. JMH only accepts benchmarks in a
+// named package, and those cannot refer to the application's default-package
+// classes, so RentalBenchmarkTarget implements this next to the application and is
+// looked up by name.
+public interface RentalTarget {
+
+    // Copies the dataset with `size` records.txt lines into the working directory, sets
+    // the system property and creates the RentalSystem; nothing is loaded yet.
+    void prepare(int size, String property, String value) throws IOException;
+
+    Object loadData();
+
+    // loadData(), then the plates, ids and vehicles the operations below cycle through
+    void loadForOperations();
+
+    Object addVehicleDuplicate(long i);
+
+    Object findVehicleByPlate(long i);
+
+    Object findCustomerById(long i);
+
+    Object rentReturnRoundTrip(long i);
+
+    Object historyByVehicle(long i);
+
+    Object historyByCustomerId(long i);
+
+    Object historyByCustomerName(long i);
+
+    Object historyBetween7Days(long i);
+
+    static RentalTarget create() {
+        try {
+            return (RentalTarget) Class.forName("RentalBenchmarkTarget").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("RentalBenchmarkTarget is not on the class path", e);
+        }
+    }
+}